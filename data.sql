@@ -305,6 +305,26 @@ CREATE TABLE `notifications` (
   CONSTRAINT `fk_notification_user` FOREIGN KEY (`user_id`) REFERENCES `sys_user`(`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='消息通知表';
 
+-- 广播通知表（群发通知只存一份，读取时与个人通知合并）
+CREATE TABLE `broadcast_notifications` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '广播通知ID',
+  `type` VARCHAR(50) NOT NULL DEFAULT 'system' COMMENT '通知类型',
+  `title` VARCHAR(200) NOT NULL COMMENT '通知标题',
+  `content` TEXT COMMENT '通知内容',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='广播通知表';
+
+-- 广播通知已读水位表（每个用户已读到的最大广播通知ID）
+CREATE TABLE `broadcast_read_watermarks` (
+  `user_id` VARCHAR(36) NOT NULL COMMENT '用户ID',
+  `last_read_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已读到的最大广播通知ID',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`user_id`),
+  CONSTRAINT `fk_broadcast_watermark_user` FOREIGN KEY (`user_id`) REFERENCES `sys_user`(`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='广播通知已读水位表';
+
 -- 插入初始科目数据
 INSERT INTO `tutor_subjects` (`name`) VALUES
 ('语文'),
@@ -0,0 +1,129 @@
+#!/usr/bin/env bash
+# 对比平台线程与虚拟线程模式下的吞吐量和 p99 延迟。
+# 两轮使用相同的数据库连接池大小和 Tomcat 线程数，只切换 app.threads.virtual.enabled。
+#
+# 依赖：JDK 21+（虚拟线程）、wrk、已打包的 jar、可用的 MySQL/MongoDB/Redis。
+# 用法：
+#   JAR=target/hitutor-backend-1.0.0.jar ./scripts/bench-virtual-threads.sh
+# 可选环境变量：
+#   JAVA_BIN        java 可执行文件（需 JDK 21+），默认 java
+#   PORT            测试端口，默认 18080
+#   DB_POOL         Hikari 最大连接数，默认 20
+#   TOMCAT_THREADS  平台线程模式下 Tomcat 最大线程数，默认 200
+#   CONNECTIONS     wrk 并发连接数，默认 1000
+#   WRK_THREADS     wrk 线程数，默认 8
+#   DURATION        每个接口的压测时长，默认 60s
+#   WARMUP          预热时长，默认 15s
+#   PATHS           空格分隔的压测路径，默认覆盖 MySQL 和 MongoDB 读路径
+#   JAVA_OPTS       额外 JVM 参数
+
+set -euo pipefail
+
+JAR="${JAR:-target/hitutor-backend-1.0.0.jar}"
+JAVA_BIN="${JAVA_BIN:-java}"
+PORT="${PORT:-18080}"
+DB_POOL="${DB_POOL:-20}"
+TOMCAT_THREADS="${TOMCAT_THREADS:-200}"
+CONNECTIONS="${CONNECTIONS:-1000}"
+WRK_THREADS="${WRK_THREADS:-8}"
+DURATION="${DURATION:-60s}"
+WARMUP="${WARMUP:-15s}"
+PATHS="${PATHS:-/api/tutor-profiles?page=0&size=10 /api/subjects /api/messages/conversations?userId=1}"
+JAVA_OPTS="${JAVA_OPTS:-}"
+
+RESULTS="$(mktemp)"
+APP_PID=""
+
+cleanup() {
+    if [ -n "$APP_PID" ] && kill -0 "$APP_PID" 2>/dev/null; then
+        kill "$APP_PID"
+        wait "$APP_PID" 2>/dev/null || true
+    fi
+    rm -f "$RESULTS"
+}
+trap cleanup EXIT
+
+command -v wrk >/dev/null || { echo "wrk is required" >&2; exit 1; }
+[ -f "$JAR" ] || { echo "jar not found: $JAR" >&2; exit 1; }
+
+# JDK 21 以下虚拟线程不可用，应用会静默回落到平台线程，两轮结果没有可比性
+JAVA_VERSION="$("$JAVA_BIN" -XshowSettings:properties -version 2>&1 \
+    | awk -F= '/java.specification.version/ {gsub(/ /, "", $2); print $2}')"
+JAVA_MAJOR="${JAVA_VERSION#1.}"
+JAVA_MAJOR="${JAVA_MAJOR%%.*}"
+if [ -z "$JAVA_MAJOR" ] || [ "$JAVA_MAJOR" -lt 21 ]; then
+    echo "JDK 21+ is required for virtual threads, $JAVA_BIN reports ${JAVA_VERSION:-unknown}" >&2
+    exit 1
+fi
+
+start_app() {
+    local virtual="$1"
+    # shellcheck disable=SC2086
+    "$JAVA_BIN" $JAVA_OPTS -jar "$JAR" \
+        --server.port="$PORT" \
+        --server.tomcat.threads.max="$TOMCAT_THREADS" \
+        --spring.datasource.hikari.maximum-pool-size="$DB_POOL" \
+        --app.threads.virtual.enabled="$virtual" \
+        > "bench-virtual-$virtual.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        if curl -s -o /dev/null "http://localhost:$PORT/api/subjects"; then
+            # 确认 Tomcat 确实切换到了虚拟线程，否则这一轮测的仍是平台线程
+            if [ "$virtual" = "true" ] && ! grep -q "Running Tomcat request handling on virtual threads" "bench-virtual-$virtual.log"; then
+                echo "virtual threads were not enabled, see bench-virtual-$virtual.log" >&2
+                exit 1
+            fi
+            return
+        fi
+        sleep 1
+    done
+    echo "application did not start, see bench-virtual-$virtual.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=""
+}
+
+# 将 wrk 的延迟统一换算成毫秒
+to_ms() {
+    awk -v v="$1" 'BEGIN {
+        if (v ~ /us$/) { sub(/us$/, "", v); printf "%.2f", v / 1000 }
+        else if (v ~ /ms$/) { sub(/ms$/, "", v); printf "%.2f", v }
+        else if (v ~ /s$/) { sub(/s$/, "", v); printf "%.2f", v * 1000 }
+        else { printf "%s", v }
+    }'
+}
+
+run_mode() {
+    local virtual="$1"
+    local mode="platform"
+    [ "$virtual" = "true" ] && mode="virtual"
+    echo "== $mode threads =="
+    start_app "$virtual"
+    for path in $PATHS; do
+        local url="http://localhost:$PORT$path"
+        wrk -t"$WRK_THREADS" -c"$CONNECTIONS" -d"$WARMUP" "$url" > /dev/null
+        local output
+        output="$(wrk -t"$WRK_THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency "$url")"
+        local rps p99 errors
+        rps="$(echo "$output" | awk '/Requests\/sec/ {print $2}')"
+        p99="$(to_ms "$(echo "$output" | awk '$1 == "99%" {print $2}')")"
+        errors="$(echo "$output" | awk '/Non-2xx|Socket errors/ {print}' | tr '\n' ' ')"
+        printf '%s\t%s\t%s\t%s\t%s\n' "$mode" "$path" "$rps" "$p99" "${errors:--}" >> "$RESULTS"
+        echo "$path  req/s=$rps  p99=${p99}ms"
+    done
+    stop_app
+}
+
+run_mode false
+run_mode true
+
+echo
+echo "DB pool=$DB_POOL  tomcat threads=$TOMCAT_THREADS  connections=$CONNECTIONS  duration=$DURATION"
+printf '%-9s %-45s %12s %10s  %s\n' "mode" "path" "req/s" "p99(ms)" "errors"
+while IFS=$'\t' read -r mode path rps p99 errors; do
+    printf '%-9s %-45s %12s %10s  %s\n' "$mode" "$path" "$rps" "$p99" "$errors"
+done < "$RESULTS"
@@ -0,0 +1,130 @@
+// 聊天连接数压测（k6）：每个 VU 建立一个 STOMP over WebSocket 连接并按固定间隔发送消息，
+// 通过回显到发送方的 clientMessageId 统计端到端延迟。
+//
+// 对比阻塞与响应式模式时，分别以 app.chat.io-mode=blocking / reactive 启动同一台节点，
+// 使用相同的 Mongo 连接池和 JVM 参数运行本脚本，比较在 p99 与失败率阈值内能维持的最大连接数。
+//
+// 依赖：k6（https://k6.io），TOKENS_FILE 中每行一个 "userId,accessToken"，至少两行。
+// 用法：
+//   k6 run -e BASE_URL=ws://localhost:8080 -e TOKENS_FILE=tokens.csv -e MAX_CONNECTIONS=10000 \
+//       scripts/chat-load-test.js
+// 可选参数：
+//   RAMP_DURATION  连接爬升时长，默认 5m
+//   HOLD_DURATION  峰值保持时长，默认 5m
+//   SEND_INTERVAL_MS  每个连接的发送间隔，默认 5000
+
+import ws from 'k6/ws';
+import { check } from 'k6';
+import { SharedArray } from 'k6/data';
+import { Counter, Trend, Rate } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'ws://localhost:8080';
+const MAX_CONNECTIONS = parseInt(__ENV.MAX_CONNECTIONS || '10000', 10);
+const RAMP_DURATION = __ENV.RAMP_DURATION || '5m';
+const HOLD_DURATION = __ENV.HOLD_DURATION || '5m';
+const SEND_INTERVAL_MS = parseInt(__ENV.SEND_INTERVAL_MS || '5000', 10);
+
+const users = new SharedArray('users', () =>
+    open(__ENV.TOKENS_FILE)
+        .split('\n')
+        .map((line) => line.trim())
+        .filter((line) => line.length > 0)
+        .map((line) => {
+            const [userId, token] = line.split(',');
+            return { userId, token };
+        }));
+
+const messageLatency = new Trend('chat_message_latency', true);
+const connected = new Counter('chat_connected');
+const connectFailed = new Rate('chat_connect_failed');
+const sendErrors = new Counter('chat_send_errors');
+
+export const options = {
+    scenarios: {
+        connections: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: RAMP_DURATION, target: MAX_CONNECTIONS },
+                { duration: HOLD_DURATION, target: MAX_CONNECTIONS },
+                { duration: '30s', target: 0 },
+            ],
+            gracefulRampDown: '30s',
+        },
+    },
+    thresholds: {
+        chat_message_latency: ['p(99)<1000'],
+        chat_connect_failed: ['rate<0.01'],
+    },
+};
+
+function frame(command, headers, body) {
+    let text = command + '\n';
+    for (const key of Object.keys(headers)) {
+        text += key + ':' + headers[key] + '\n';
+    }
+    return text + '\n' + (body || '') + '\0';
+}
+
+export default function () {
+    const index = (__VU - 1) % users.length;
+    const user = users[index];
+    const peer = users[(index + 1) % users.length];
+    const pending = {};
+    let sequence = 0;
+
+    const response = ws.connect(BASE_URL + '/ws/websocket', {}, (socket) => {
+        socket.on('open', () => {
+            socket.send(frame('CONNECT', {
+                'accept-version': '1.2',
+                'heart-beat': '0,0',
+                Authorization: 'Bearer ' + user.token,
+            }));
+        });
+
+        socket.on('message', (data) => {
+            if (data.startsWith('CONNECTED')) {
+                connected.add(1);
+                connectFailed.add(false);
+                socket.send(frame('SUBSCRIBE', { id: 'messages', destination: '/user/queue/messages' }));
+                socket.send(frame('SUBSCRIBE', { id: 'errors', destination: '/user/queue/errors' }));
+                socket.setInterval(() => {
+                    const clientMessageId = user.userId + '-' + __VU + '-' + (sequence++);
+                    pending[clientMessageId] = Date.now();
+                    socket.send(frame('SEND', { destination: '/app/chat/send', 'content-type': 'application/json' },
+                        JSON.stringify({ receiverId: peer.userId, content: 'load test ' + clientMessageId, clientMessageId })));
+                }, SEND_INTERVAL_MS);
+                return;
+            }
+            if (data.startsWith('ERROR')) {
+                connectFailed.add(true);
+                socket.close();
+                return;
+            }
+            if (!data.startsWith('MESSAGE')) {
+                return;
+            }
+            const body = data.substring(data.indexOf('\n\n') + 2, data.lastIndexOf('\0'));
+            if (data.indexOf('subscription:errors') >= 0) {
+                sendErrors.add(1);
+                return;
+            }
+            try {
+                const payload = JSON.parse(body);
+                const sentAt = pending[payload.clientMessageId];
+                if (sentAt) {
+                    messageLatency.add(Date.now() - sentAt);
+                    delete pending[payload.clientMessageId];
+                }
+            } catch (e) {
+                sendErrors.add(1);
+            }
+        });
+
+        socket.on('error', () => {
+            connectFailed.add(true);
+        });
+    });
+
+    check(response, { 'websocket upgraded': (r) => r && r.status === 101 });
+}
@@ -7,12 +7,15 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 import jakarta.annotation.PostConstruct;
 
 @MapperScan({"com.hitutor.mapper", "com.hitutor.repository"})
-@SpringBootApplication
+// 响应式 Mongo 客户端仅在 app.chat.io-mode=reactive 时由 ReactiveMongoConfig 引入
+@SpringBootApplication(exclude = {MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
 @EnableScheduling
 public class HiTutorApplication {
 
@@ -0,0 +1,80 @@
+package com.hitutor.config;
+
+import com.hitutor.service.AccessLogService;
+import com.hitutor.util.IpUtil;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    public static final String USER_ID_ATTRIBUTE = "hitutor.accessLog.userId";
+
+    @Autowired
+    private AccessLogService accessLogService;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long start = System.currentTimeMillis();
+        String error = null;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            error = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            if (error == null && request.isAsyncStarted()) {
+                // 异步请求在真正完成时再记录，避免把首次分派的耗时和状态当成最终结果
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response, start, null);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, response, start, error);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long start, String error) {
+        int status = error != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+        Object userId = request.getAttribute(USER_ID_ATTRIBUTE);
+        accessLogService.record(new AccessLogService.Entry(
+                start,
+                request.getMethod(),
+                request.getRequestURI(),
+                status,
+                System.currentTimeMillis() - start,
+                userId != null ? userId.toString() : null,
+                IpUtil.getClientIp(request),
+                error));
+    }
+}
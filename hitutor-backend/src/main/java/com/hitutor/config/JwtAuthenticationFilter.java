@@ -1,6 +1,8 @@
 package com.hitutor.config;
 
+import com.hitutor.service.TokenRevocationService;
 import com.hitutor.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -28,6 +30,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
@@ -35,12 +40,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String requestURI = request.getRequestURI();
         final String method = request.getMethod();
-        logger.info("Processing request: {} {}", method, requestURI);
+        logger.debug("Processing request: {} {}", method, requestURI);
         
         final String requestTokenHeader = request.getHeader("Authorization");
 
         String username = null;
         String jwtToken = null;
+        Claims claims = null;
 
         try {
             if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
@@ -48,8 +54,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 
                 if (jwtToken != null && !jwtToken.isEmpty()) {
                     try {
-                        username = jwtUtil.getUserIdFromToken(jwtToken);
-                        logger.info("JWT token validated for user: {}", username);
+                        claims = jwtUtil.getClaimsFromToken(jwtToken);
+                        username = claims.getSubject();
+                        logger.debug("JWT token validated for user: {}", username);
                     } catch (IllegalArgumentException e) {
                         logger.error("Unable to get JWT Token: {}", e.getMessage());
                     } catch (ExpiredJwtException e) {
@@ -61,7 +68,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (jwtUtil.validateAccessToken(jwtToken)) {
+                if (tokenRevocationService.isRevoked(claims)) {
+                    logger.debug("JWT token has been revoked for user: {}", username);
+                } else if (jwtUtil.validateAccessToken(jwtToken)) {
                     String role = jwtUtil.getRoleFromToken(jwtToken);
                     
                     UsernamePasswordAuthenticationToken authToken = 
@@ -70,7 +79,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     
                     SecurityContextHolder.getContext().setAuthentication(authToken);
-                    logger.info("Authentication set for user: {} with role: {}", username, role);
+                    request.setAttribute(AccessLogFilter.USER_ID_ATTRIBUTE, username);
+                    logger.debug("Authentication set for user: {} with role: {}", username, role);
                 }
             }
         } catch (Exception e) {
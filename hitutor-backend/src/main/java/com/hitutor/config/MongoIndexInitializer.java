@@ -0,0 +1,88 @@
+package com.hitutor.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 启动时按 @Document 上声明的索引创建 Mongo 索引，并回读索引列表确认全部存在。
+ * 声明的索引全部就绪后，删除已被替代的旧索引，避免每次写入继续维护冗余索引。
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    // 集合名 -> 已被替代的旧索引名
+    private static final Map<String, List<String>> RETIRED_INDEXES = Map.of(
+            "chat_messages", List.of("idx_conversation_create_time"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mongoMappingContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        for (MongoPersistentEntity<?> entity : mongoMappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            Class<?> type = entity.getType();
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(type);
+                List<String> expected = new ArrayList<>();
+                for (IndexDefinition definition : resolver.resolveIndexFor(type)) {
+                    indexOps.ensureIndex(definition);
+                    Object name = definition.getIndexOptions().get("name");
+                    if (name != null) {
+                        expected.add(name.toString());
+                    }
+                }
+
+                Set<String> existing = new HashSet<>();
+                for (IndexInfo info : indexOps.getIndexInfo()) {
+                    existing.add(info.getName());
+                }
+                List<String> missing = new ArrayList<>(expected);
+                missing.removeAll(existing);
+                if (missing.isEmpty()) {
+                    logger.info("Verified {} indexes on collection {}", expected.size(), entity.getCollection());
+                    dropRetiredIndexes(indexOps, entity.getCollection(), existing);
+                } else {
+                    logger.error("Missing indexes {} on collection {}", missing, entity.getCollection());
+                }
+            } catch (Exception e) {
+                logger.error("Failed to ensure indexes for collection {}: {}", entity.getCollection(), e.getMessage());
+            }
+        }
+    }
+
+    private void dropRetiredIndexes(IndexOperations indexOps, String collection, Set<String> existing) {
+        for (String name : RETIRED_INDEXES.getOrDefault(collection, List.of())) {
+            if (existing.contains(name)) {
+                indexOps.dropIndex(name);
+                logger.info("Dropped retired index {} on collection {}", name, collection);
+            }
+        }
+    }
+}
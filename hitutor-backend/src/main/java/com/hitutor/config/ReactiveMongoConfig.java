@@ -0,0 +1,17 @@
+package com.hitutor.config;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 响应式 Mongo 客户端及 ReactiveMongoTemplate，仅在 app.chat.io-mode=reactive 时创建。
+ * 默认的阻塞模式只保留一个 MongoClient，避免多出一套连接池和监控线程。
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.chat.io-mode", havingValue = "reactive")
+@ImportAutoConfiguration({MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
+public class ReactiveMongoConfig {
+}
@@ -0,0 +1,33 @@
+package com.hitutor.config;
+
+import com.hitutor.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 可选的虚拟线程模式（app.threads.virtual.enabled=true，需 JDK 21+）：Tomcat 请求处理改为每请求一个虚拟线程。
+ * STOMP 入站通道和异步执行器在各自的配置中读取同一开关。
+ * 并发度不再受 Tomcat 线程池限制，数据库连接池大小成为实际的并发上限。
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        if (!VirtualThreads.isSupported()) {
+            logger.warn("Virtual threads requested but not supported by JVM {}, using platform threads",
+                    System.getProperty("java.version"));
+            return protocolHandler -> {
+            };
+        }
+        logger.info("Running Tomcat request handling on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newExecutor("tomcat-virtual-"));
+    }
+}
@@ -1,9 +1,14 @@
 package com.hitutor.config;
 
+import com.hitutor.util.VirtualThreads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.charset.StandardCharsets;
@@ -12,6 +17,18 @@ import java.util.List;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Value("${app.web.async.timeout-ms:600000}")
+    private long asyncTimeoutMs;
+
+    @Value("${app.web.async.pool-size:16}")
+    private int asyncPoolSize;
+
+    @Value("${app.web.async.queue-capacity:100}")
+    private int asyncQueueCapacity;
+
+    @Value("${app.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
         StringHttpMessageConverter stringConverter = new StringHttpMessageConverter(StandardCharsets.UTF_8);
@@ -22,4 +39,27 @@ public class WebConfig implements WebMvcConfigurer {
         jsonConverter.setDefaultCharset(StandardCharsets.UTF_8);
         converters.add(1, jsonConverter);
     }
+
+    /**
+     * StreamingResponseBody 等异步响应在独立的有界线程池上执行；超时后连接被关闭，
+     * 导出接口可按已收到的最后一行续传。
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncPoolSize);
+        executor.setMaxPoolSize(asyncPoolSize);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        if (virtualThreadsEnabled && VirtualThreads.isSupported()) {
+            executor.setThreadFactory(VirtualThreads.newThreadFactory("mvc-async-virtual-"));
+        }
+        return executor;
+    }
 }
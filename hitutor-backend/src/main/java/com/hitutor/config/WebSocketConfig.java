@@ -1,25 +1,145 @@
 package com.hitutor.config;
 
+import com.hitutor.util.VirtualThreads;
+import com.hitutor.websocket.CompressionHandshakeHandler;
+import com.hitutor.websocket.MessageEncodingInterceptor;
+import com.hitutor.websocket.PresenceChannelInterceptor;
+import com.hitutor.websocket.SlowConsumerGuard;
+import com.hitutor.websocket.StompAuthChannelInterceptor;
+import com.hitutor.websocket.WebSocketTrafficMonitor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    @Autowired
+    private PresenceChannelInterceptor presenceChannelInterceptor;
+
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private MessageEncodingInterceptor messageEncodingInterceptor;
+
+    @Autowired
+    private WebSocketTrafficMonitor webSocketTrafficMonitor;
+
+    @Value("${app.websocket.compression.deflate-enabled:true}")
+    private boolean deflateEnabled;
+
+    @Value("${app.websocket.inbound.core-pool-size:16}")
+    private int inboundCorePoolSize;
+
+    @Value("${app.websocket.inbound.max-pool-size:64}")
+    private int inboundMaxPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.websocket.outbound.core-pool-size:16}")
+    private int outboundCorePoolSize;
+
+    @Value("${app.websocket.outbound.max-pool-size:64}")
+    private int outboundMaxPoolSize;
+
+    @Value("${app.websocket.outbound.queue-capacity:50000}")
+    private int outboundQueueCapacity;
+
+    @Value("${app.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${app.threads.virtual.websocket-inbound-concurrency:2000}")
+    private int virtualInboundConcurrency;
+
+    @Value("${app.websocket.executor.keep-alive-seconds:60}")
+    private int keepAliveSeconds;
+
+    @Value("${app.websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${app.websocket.transport.time-to-first-message-ms:30000}")
+    private int timeToFirstMessageMs;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
+                .setHandshakeHandler(new CompressionHandshakeHandler(deflateEnabled))
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    /**
+     * 单个会话写出超过 send-time-limit 或缓冲超过 send-buffer-size-limit 时由框架关闭会话，
+     * 慢消费者的丢弃/断开策略在 SlowConsumerGuard 中更早生效。
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .setTimeToFirstMessage(timeToFirstMessageMs)
+                .addDecoratorFactory(slowConsumerGuard)
+                .addDecoratorFactory(webSocketTrafficMonitor);
+    }
+
+    /**
+     * 虚拟线程模式下入站处理线程改为虚拟线程，并发上限放宽到 websocket-inbound-concurrency，
+     * 仍保留有界队列，统计接口继续可用。
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (virtualThreadsEnabled && VirtualThreads.isSupported()) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadFactory(VirtualThreads.newThreadFactory("ws-inbound-virtual-"));
+            executor.setAllowCoreThreadTimeOut(true);
+            registration.taskExecutor(executor)
+                    .corePoolSize(virtualInboundConcurrency)
+                    .maxPoolSize(virtualInboundConcurrency)
+                    .queueCapacity(inboundQueueCapacity)
+                    .keepAliveSeconds(keepAliveSeconds);
+        } else {
+            registration.taskExecutor()
+                    .corePoolSize(inboundCorePoolSize)
+                    .maxPoolSize(inboundMaxPoolSize)
+                    .queueCapacity(inboundQueueCapacity)
+                    .keepAliveSeconds(keepAliveSeconds);
+        }
+        registration.interceptors(stompAuthChannelInterceptor, presenceChannelInterceptor, messageEncodingInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity)
+                .keepAliveSeconds(keepAliveSeconds);
+        registration.interceptors(slowConsumerGuard, messageEncodingInterceptor);
+    }
 }
@@ -1,20 +1,27 @@
 package com.hitutor.controller;
 
+import com.hitutor.document.ChatMessage;
 import com.hitutor.dto.UserDTO;
 import com.hitutor.entity.User;
+import com.hitutor.service.ChatExportService;
 import com.hitutor.service.ComplaintService;
 import com.hitutor.service.PointService;
 import com.hitutor.service.StudentRequestService;
+import com.hitutor.service.TokenRevocationService;
 import com.hitutor.service.TutorProfileService;
 import com.hitutor.service.UserService;
 import com.hitutor.util.DtoConverter;
 import com.hitutor.util.JwtUtil;
 import com.hitutor.util.PasswordUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +52,12 @@ public class AdminController {
     @Autowired
     private PasswordUtil passwordUtil;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private ChatExportService chatExportService;
+
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> adminRegister(@RequestBody Map<String, String> request) {
         String email = request.get("email");
@@ -242,6 +255,9 @@ public class AdminController {
             user.setStatus(status);
             boolean updated = userService.updateUser(user);
             if (updated) {
+                if ("inactive".equals(status)) {
+                    tokenRevocationService.revokeUser(id);
+                }
                 response.put("success", true);
                 response.put("message", "更新用户状态成功");
                 response.put("data", DtoConverter.toUserDTO(user));
@@ -311,6 +327,7 @@ public class AdminController {
         boolean deleted = userService.deleteUser(id);
         Map<String, Object> response = new HashMap<>();
         if (deleted) {
+            tokenRevocationService.revokeUser(id);
             response.put("success", true);
             response.put("message", "删除用户成功");
             return ResponseEntity.ok(response);
@@ -395,4 +412,37 @@ public class AdminController {
         
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/chat-export/conversations/{conversationId}")
+    public ResponseEntity<StreamingResponseBody> exportConversation(
+            @PathVariable String conversationId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String afterMessageId) {
+        ChatExportService.checkFormat(format);
+        ChatMessage after = chatExportService.resumeAnchor(conversationId, afterMessageId);
+        StreamingResponseBody body = out -> chatExportService.exportConversation(conversationId, format, after, out);
+        return exportResponse("conversation-" + conversationId, format, after, body);
+    }
+
+    @GetMapping("/chat-export/users/{userId}")
+    public ResponseEntity<StreamingResponseBody> exportUserChats(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String afterConversationId,
+            @RequestParam(required = false) String afterMessageId) {
+        ChatExportService.checkFormat(format);
+        ChatMessage after = chatExportService.resumeAnchor(afterConversationId, afterMessageId);
+        StreamingResponseBody body = out -> chatExportService.exportUser(userId, format, after, out);
+        return exportResponse("user-" + userId, format, after, body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(String name, String format, ChatMessage after,
+                                                                 StreamingResponseBody body) {
+        boolean csv = ChatExportService.FORMAT_CSV.equals(format);
+        String filename = name + (after != null ? "-after-" + after.getId() : "") + (csv ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
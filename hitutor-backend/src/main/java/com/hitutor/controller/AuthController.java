@@ -2,8 +2,10 @@ package com.hitutor.controller;
 
 import com.hitutor.dto.UserDTO;
 import com.hitutor.entity.User;
+import com.hitutor.service.LastLoginService;
 import com.hitutor.service.UserService;
 import com.hitutor.service.PointService;
+import com.hitutor.service.TokenRevocationService;
 import com.hitutor.service.VerificationService;
 import com.hitutor.util.DtoConverter;
 import com.hitutor.util.JwtUtil;
@@ -20,6 +22,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -43,6 +46,12 @@ public class AuthController {
     @Autowired
     private VerificationService verificationService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private LastLoginService lastLoginService;
+
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> request) {
         String email = request.get("email");
@@ -65,7 +74,7 @@ public class AuthController {
             }
             
             user.setLastLoginTime(LocalDateTime.now());
-            userService.updateUser(user);
+            lastLoginService.recordLogin(user.getId(), user.getLastLoginTime(), null);
             
             String accessToken = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getRole());
             Map<String, Object> response = new HashMap<>();
@@ -108,7 +117,7 @@ public class AuthController {
             
             user.setLastLoginTime(LocalDateTime.now());
             user.setLastLoginIp(IpUtil.getClientIp(httpRequest));
-            userService.updateUser(user);
+            lastLoginService.recordLogin(user.getId(), user.getLastLoginTime(), user.getLastLoginIp());
             
             String accessToken = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getRole());
             Map<String, Object> response = new HashMap<>();
@@ -160,7 +169,7 @@ public class AuthController {
             
             user.setLastLoginTime(LocalDateTime.now());
             user.setLastLoginIp(IpUtil.getClientIp(httpRequest));
-            userService.updateUser(user);
+            lastLoginService.recordLogin(user.getId(), user.getLastLoginTime(), user.getLastLoginIp());
             
             String accessToken = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getRole());
             Map<String, Object> response = new HashMap<>();
@@ -275,14 +284,15 @@ public class AuthController {
     }
 
     @PostMapping("/forgot-password")
-    public ResponseEntity<Map<String, Object>> forgotPassword(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> forgotPassword(@RequestBody Map<String, String> request) {
         
         String phone = request.get("phone");
-        verificationService.sendVerificationCode(phone);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("message", "验证码已发送至您的手机，请注意查收");
-        return ResponseEntity.ok(response);
+        return verificationService.sendVerificationCodeAsync(phone).thenApply(ignored -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "验证码已发送至您的手机，请注意查收");
+            return ResponseEntity.ok(response);
+        });
     }
 
     @PostMapping("/reset-password")
@@ -322,6 +332,23 @@ public class AuthController {
         }
     }
     
+    @PostMapping("/logout")
+    public ResponseEntity<Map<String, Object>> logout(HttpServletRequest httpRequest,
+                                                      @RequestBody(required = false) Map<String, String> request) {
+        String authorization = httpRequest.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            tokenRevocationService.revokeToken(authorization.substring(7));
+        }
+        if (request != null && request.get("refreshToken") != null) {
+            tokenRevocationService.revokeToken(request.get("refreshToken"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "退出登录成功");
+        return ResponseEntity.ok(response);
+    }
+    
     @PostMapping("/check-login")
     public ResponseEntity<Map<String, Object>> checkLogin() {
         
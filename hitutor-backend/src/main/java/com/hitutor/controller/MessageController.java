@@ -3,19 +3,27 @@ package com.hitutor.controller;
 import com.hitutor.document.ChatMessage;
 import com.hitutor.entity.Conversation;
 import com.hitutor.entity.Notification;
-import com.hitutor.repository.ChatMessageRepository;
+import com.hitutor.service.ChatMessageService;
+import com.hitutor.service.ChatSearchService;
+import com.hitutor.service.ChatSyncService;
+import com.hitutor.service.ConversationActivityService;
 import com.hitutor.service.MessageService;
 import com.hitutor.service.NotificationService;
+import com.hitutor.service.PresenceService;
+import com.hitutor.websocket.ChatMessageRouter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -26,10 +34,25 @@ public class MessageController {
     private MessageService messageService;
 
     @Autowired
-    private ChatMessageRepository chatMessageRepository;
+    private NotificationService notificationService;
 
     @Autowired
-    private NotificationService notificationService;
+    private ChatMessageService chatMessageService;
+
+    @Autowired
+    private ChatMessageRouter chatMessageRouter;
+
+    @Autowired
+    private ConversationActivityService conversationActivityService;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private ChatSyncService chatSyncService;
+
+    @Autowired
+    private ChatSearchService chatSearchService;
 
     @GetMapping("/conversations")
     public ResponseEntity<Map<String, Object>> getConversations(
@@ -50,37 +73,19 @@ public class MessageController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         
-        List<ChatMessage> allMessages = chatMessageRepository.findByConversationIdOrderByCreateTimeAsc(sessionId);
-        
-        int fromIndex = page * size;
-        int toIndex = Math.min(fromIndex + size, allMessages.size());
-        
-        List<ChatMessage> messages = allMessages.subList(fromIndex, toIndex);
-        
-        List<Map<String, Object>> messageList = messages.stream()
-                .map(msg -> {
-                    Map<String, Object> messageMap = new HashMap<>();
-                    messageMap.put("id", msg.getId());
-                    messageMap.put("conversationId", msg.getConversationId());
-                    messageMap.put("senderId", msg.getSenderId());
-                    messageMap.put("receiverId", msg.getReceiverId());
-                    messageMap.put("content", msg.getContent());
-                    messageMap.put("messageType", msg.getMessageType());
-                    messageMap.put("isRead", msg.getIsRead());
-                    messageMap.put("createTime", msg.getCreateTime());
-                    return messageMap;
-                })
-                .collect(Collectors.toList());
+        Page<ChatMessage> messagePage = chatMessageService.getMessagePage(sessionId, page, size);
         
-        int totalPages = (int) Math.ceil((double) allMessages.size() / size);
+        List<Map<String, Object>> messageList = messagePage.getContent().stream()
+                .map(this::toMessageMap)
+                .collect(Collectors.toList());
         
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
         
         Map<String, Object> dataMap = new HashMap<>();
         dataMap.put("content", messageList);
-        dataMap.put("totalElements", allMessages.size());
-        dataMap.put("totalPages", totalPages);
+        dataMap.put("totalElements", messagePage.getTotalElements());
+        dataMap.put("totalPages", messagePage.getTotalPages());
         dataMap.put("currentPage", page);
         dataMap.put("size", size);
         
@@ -89,6 +94,86 @@ public class MessageController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/conversations/{sessionId}/history")
+    public ResponseEntity<Map<String, Object>> getMessageHistory(
+            @PathVariable String sessionId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        int pageSize = Math.min(Math.max(limit, 1), 100);
+        List<ChatMessage> messages;
+        if (before != null && !before.isEmpty()) {
+            messages = chatMessageService.getMessagesBefore(sessionId, before, pageSize + 1);
+            boolean hasMore = messages.size() > pageSize;
+            if (hasMore) {
+                messages = messages.subList(1, messages.size());
+            }
+            return historyResponse(messages, hasMore);
+        }
+        if (after != null && !after.isEmpty()) {
+            messages = chatMessageService.getMessagesAfter(sessionId, after, pageSize + 1);
+            boolean hasMore = messages.size() > pageSize;
+            if (hasMore) {
+                messages = messages.subList(0, pageSize);
+            }
+            return historyResponse(messages, hasMore);
+        }
+        messages = chatMessageService.getLatestMessages(sessionId, pageSize + 1);
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = messages.subList(1, messages.size());
+        }
+        return historyResponse(messages, hasMore);
+    }
+
+    /**
+     * 以 NDJSON 逐条推送历史消息（时间降序），客户端收到一条即可渲染一条。
+     */
+    @GetMapping(value = "/conversations/{sessionId}/history/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> streamMessageHistory(
+            @PathVariable String sessionId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "200") int limit) {
+        
+        int streamLimit = Math.min(Math.max(limit, 1), 1000);
+        return chatMessageService.streamHistory(sessionId, before, streamLimit).map(this::toMessageMap);
+    }
+
+    @GetMapping("/sync")
+    public ResponseEntity<Map<String, Object>> syncChanges(
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        
+        int pageSize = Math.min(Math.max(limit, 1), 500);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", chatSyncService.sync(userId, cursor, pageSize));
+        
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchMessages(
+            @RequestParam String userId,
+            @RequestParam String keyword,
+            @RequestParam(required = false) String conversationId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "2") int context) {
+        
+        int pageSize = Math.min(Math.max(size, 1), 50);
+        int contextSize = Math.min(Math.max(context, 0), 10);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", chatSearchService.search(userId, conversationId, keyword, Math.max(page, 0), pageSize, contextSize));
+        
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping("/conversations")
     public ResponseEntity<Map<String, Object>> createConversation(
             @RequestBody Map<String, String> request) {
@@ -107,7 +192,7 @@ public class MessageController {
     }
 
     @PostMapping("/conversations/{sessionId}/messages")
-    public ResponseEntity<Map<String, Object>> sendMessage(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> sendMessage(
             @PathVariable String sessionId,
             @RequestBody Map<String, Object> request) {
         
@@ -117,7 +202,6 @@ public class MessageController {
         String messageType = (String) request.getOrDefault("messageType", "text");
         
         ChatMessage chatMessage = new ChatMessage();
-        chatMessage.setId(UUID.randomUUID().toString());
         chatMessage.setConversationId(sessionId);
         chatMessage.setSenderId(senderId);
         chatMessage.setReceiverId(receiverId);
@@ -126,43 +210,34 @@ public class MessageController {
         chatMessage.setIsRead(false);
         chatMessage.setCreateTime(LocalDateTime.now());
         
-        chatMessageRepository.save(chatMessage);
-        
-        Conversation conversation = new Conversation();
-        try {
-            conversation.setId(Long.parseLong(sessionId));
-        } catch (NumberFormatException e) {
-        }
-        conversation.setLastMessageTime(LocalDateTime.now());
-        messageService.updateConversation(conversation);
-        
-        Notification notification = new Notification();
-        notification.setUserId(receiverId);
-        notification.setType("message");
-        notification.setTitle("收到新消息");
-        notification.setContent(content.length() > 50 ? content.substring(0, 50) + "..." : content);
-        notification.setRelatedId(chatMessage.getId());
-        notification.setRelatedType("message");
-        notification.setIsRead(0);
-        notificationService.createNotification(notification);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        
-        Map<String, Object> dataMap = new HashMap<>();
-        dataMap.put("id", chatMessage.getId());
-        dataMap.put("conversationId", chatMessage.getConversationId());
-        dataMap.put("senderId", chatMessage.getSenderId());
-        dataMap.put("receiverId", chatMessage.getReceiverId());
-        dataMap.put("content", chatMessage.getContent());
-        dataMap.put("messageType", chatMessage.getMessageType());
-        dataMap.put("isRead", chatMessage.getIsRead());
-        dataMap.put("createTime", chatMessage.getCreateTime());
-        
-        result.put("data", dataMap);
-        result.put("message", "消息发送成功");
-        
-        return ResponseEntity.ok(result);
+        return chatMessageService.sendMessage(chatMessage).thenApply(saved -> {
+            try {
+                conversationActivityService.recordActivity(Long.parseLong(sessionId), saved.getCreateTime());
+            } catch (NumberFormatException e) {
+            }
+            
+            // 接收方在线时消息会实时推送，只为离线用户落库通知
+            if (!presenceService.isOnline(receiverId)) {
+                Notification notification = new Notification();
+                notification.setUserId(receiverId);
+                notification.setType("message");
+                notification.setTitle("收到新消息");
+                notification.setContent(content.length() > 50 ? content.substring(0, 50) + "..." : content);
+                notification.setRelatedId(saved.getId());
+                notification.setRelatedType("message");
+                notification.setIsRead(0);
+                notificationService.createNotification(notification);
+            }
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("data", toMessageMap(saved));
+            result.put("message", "消息发送成功");
+            
+            chatMessageRouter.deliver(ChatMessageRouter.MESSAGES_DESTINATION, result, senderId, receiverId);
+            
+            return ResponseEntity.ok(result);
+        });
     }
 
     @PutMapping("/conversations/{sessionId}/read")
@@ -170,18 +245,39 @@ public class MessageController {
             @PathVariable String sessionId,
             @RequestParam String userId) {
         
-        chatMessageRepository.findByConversationIdOrderByCreateTimeAsc(sessionId)
-                .stream()
-                .filter(msg -> msg.getReceiverId().equals(userId) && !msg.getIsRead())
-                .forEach(msg -> {
-                    msg.setIsRead(true);
-                    chatMessageRepository.save(msg);
-                });
+        long updated = chatMessageService.markAsRead(sessionId, userId);
         
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
         result.put("message", "消息已标记为已读");
+        result.put("data", updated);
         
         return ResponseEntity.ok(result);
     }
+
+    private ResponseEntity<Map<String, Object>> historyResponse(List<ChatMessage> messages, boolean hasMore) {
+        Map<String, Object> dataMap = new HashMap<>();
+        dataMap.put("content", messages.stream().map(this::toMessageMap).collect(Collectors.toList()));
+        dataMap.put("hasMore", hasMore);
+        dataMap.put("firstId", messages.isEmpty() ? null : messages.get(0).getId());
+        dataMap.put("lastId", messages.isEmpty() ? null : messages.get(messages.size() - 1).getId());
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", dataMap);
+        return ResponseEntity.ok(result);
+    }
+
+    private Map<String, Object> toMessageMap(ChatMessage msg) {
+        Map<String, Object> messageMap = new HashMap<>();
+        messageMap.put("id", msg.getId());
+        messageMap.put("conversationId", msg.getConversationId());
+        messageMap.put("senderId", msg.getSenderId());
+        messageMap.put("receiverId", msg.getReceiverId());
+        messageMap.put("content", msg.getContent());
+        messageMap.put("messageType", msg.getMessageType());
+        messageMap.put("isRead", msg.getIsRead());
+        messageMap.put("createTime", msg.getCreateTime());
+        return messageMap;
+    }
 }
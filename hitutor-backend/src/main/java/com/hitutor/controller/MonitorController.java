@@ -0,0 +1,212 @@
+package com.hitutor.controller;
+
+import com.hitutor.service.AccessLogService;
+import com.hitutor.service.BlacklistService;
+import com.hitutor.service.ChatMessageStore;
+import com.hitutor.service.ChatMessageWriter;
+import com.hitutor.service.ConversationActivityService;
+import com.hitutor.service.ConversationService;
+import com.hitutor.service.LastLoginService;
+import com.hitutor.service.PresenceService;
+import com.hitutor.service.RecentMessageCache;
+import com.hitutor.service.SmsGateway;
+import com.hitutor.service.TokenRevocationService;
+import com.hitutor.service.UnreadCounterService;
+import com.hitutor.service.impl.ChatBucketArchiver;
+import com.hitutor.websocket.ChatMessageRouter;
+import com.hitutor.websocket.SlowConsumerGuard;
+import com.hitutor.websocket.WebSocketTrafficMonitor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/monitor")
+public class MonitorController {
+
+    @Autowired
+    private AccessLogService accessLogService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private LastLoginService lastLoginService;
+
+    @Autowired
+    private SmsGateway smsGateway;
+
+    @Autowired
+    private ChatMessageRouter chatMessageRouter;
+
+    @Autowired
+    private BlacklistService blacklistService;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private ConversationActivityService conversationActivityService;
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Autowired(required = false)
+    private ChatBucketArchiver chatBucketArchiver;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private WebSocketTrafficMonitor webSocketTrafficMonitor;
+
+    @GetMapping("/access-log")
+    public ResponseEntity<Map<String, Object>> getAccessLogStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取访问日志统计成功");
+        response.put("data", accessLogService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/token-revocation")
+    public ResponseEntity<Map<String, Object>> getTokenRevocationStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取令牌撤销统计成功");
+        response.put("data", tokenRevocationService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/last-login")
+    public ResponseEntity<Map<String, Object>> getLastLoginStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取登录信息写入统计成功");
+        response.put("data", lastLoginService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/sms")
+    public ResponseEntity<Map<String, Object>> getSmsGatewayStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取短信网关统计成功");
+        response.put("data", smsGateway.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/chat-delivery")
+    public ResponseEntity<Map<String, Object>> getChatDeliveryStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取消息投递统计成功");
+        response.put("data", chatMessageRouter.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/chat-cache")
+    public ResponseEntity<Map<String, Object>> getChatCacheStats() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("blocks", blacklistService.getCacheStats());
+        data.put("conversations", conversationService.getCacheStats());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取聊天缓存统计成功");
+        response.put("data", data);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/conversation-activity")
+    public ResponseEntity<Map<String, Object>> getConversationActivityStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取会话活跃时间写入统计成功");
+        response.put("data", conversationActivityService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/chat-writer")
+    public ResponseEntity<Map<String, Object>> getChatWriterStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取消息写入统计成功");
+        response.put("data", chatMessageWriter.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/presence")
+    public ResponseEntity<Map<String, Object>> getPresenceStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取在线状态统计成功");
+        response.put("data", presenceService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/chat-storage")
+    public ResponseEntity<Map<String, Object>> getChatStorageStats() {
+        Map<String, Object> data = new HashMap<>(chatMessageStore.getStats());
+        if (chatBucketArchiver != null) {
+            data.put("archive", chatBucketArchiver.getStats());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取消息存储统计成功");
+        response.put("data", data);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/chat-message-cache")
+    public ResponseEntity<Map<String, Object>> getChatMessageCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取最近消息缓存统计成功");
+        response.put("data", recentMessageCache.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/websocket")
+    public ResponseEntity<Map<String, Object>> getWebSocketStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取WebSocket连接统计成功");
+        response.put("data", slowConsumerGuard.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/websocket-traffic")
+    public ResponseEntity<Map<String, Object>> getWebSocketTrafficStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取WebSocket流量统计成功");
+        response.put("data", webSocketTrafficMonitor.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/notification-unread")
+    public ResponseEntity<Map<String, Object>> getNotificationUnreadStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取未读通知计数统计成功");
+        response.put("data", unreadCounterService.getStats());
+        return ResponseEntity.ok(response);
+    }
+}
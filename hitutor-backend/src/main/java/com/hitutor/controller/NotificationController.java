@@ -1,8 +1,8 @@
 package com.hitutor.controller;
 
+import com.hitutor.entity.BroadcastNotification;
 import com.hitutor.entity.Notification;
 import com.hitutor.service.NotificationService;
-import com.hitutor.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,9 +22,6 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
-    @Autowired
-    private UserService userService;
-
     @GetMapping
     public ResponseEntity<Map<String, Object>> getUserNotifications(
             @RequestParam(defaultValue = "1") int page,
@@ -67,8 +64,21 @@ public class NotificationController {
     }
 
     @PutMapping("/{id}/read")
-    public ResponseEntity<Map<String, Object>> markAsRead(@PathVariable Long id) {
-        boolean updated = notificationService.markAsRead(id);
+    public ResponseEntity<Map<String, Object>> markAsRead(
+            @PathVariable Long id,
+            @RequestParam(required = false) String userId) {
+        boolean broadcast = notificationService.isBroadcastId(id);
+        String broadcastUserId = broadcast ? resolveUserId(userId) : null;
+        if (broadcast && broadcastUserId == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "未授权");
+            return ResponseEntity.status(401).body(response);
+        }
+        
+        boolean updated = broadcast
+                ? notificationService.markBroadcastAsRead(broadcastUserId, notificationService.toBroadcastId(id))
+                : notificationService.markAsRead(id);
         if (!updated) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -101,7 +111,30 @@ public class NotificationController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> deleteNotification(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> deleteNotification(
+            @PathVariable Long id,
+            @RequestParam(required = false) String userId) {
+        // 广播通知只有一条共享记录，不能按用户删除，删除操作改为标记已读
+        if (notificationService.isBroadcastId(id)) {
+            String broadcastUserId = resolveUserId(userId);
+            if (broadcastUserId == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "未授权");
+                return ResponseEntity.status(401).body(response);
+            }
+            if (!notificationService.markBroadcastAsRead(broadcastUserId, notificationService.toBroadcastId(id))) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "通知不存在");
+                return ResponseEntity.status(404).body(response);
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "广播通知不能删除，已标记为已读");
+            return ResponseEntity.ok(response);
+        }
+        
         boolean deleted = notificationService.deleteNotification(id);
         if (!deleted) {
             Map<String, Object> response = new HashMap<>();
@@ -150,16 +183,8 @@ public class NotificationController {
             notification.setIsRead(0);
             notificationService.createNotification(notification);
         } else {
-            List<String> allUserIds = userService.getAllUserIds();
-            for (String uid : allUserIds) {
-                Notification notification = new Notification();
-                notification.setUserId(uid);
-                notification.setType(type);
-                notification.setTitle(title);
-                notification.setContent(content);
-                notification.setIsRead(0);
-                notificationService.createNotification(notification);
-            }
+            // 群发只写一条广播记录，用户读取时再合并
+            notificationService.createBroadcast(type, title, content);
         }
         
         Map<String, Object> response = new HashMap<>();
@@ -187,4 +212,37 @@ public class NotificationController {
         
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/admin/broadcasts")
+    public ResponseEntity<Map<String, Object>> getAllBroadcasts(
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<BroadcastNotification> broadcasts = notificationService.getAllBroadcasts(page, size);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取广播通知列表成功");
+        
+        Map<String, Object> data = new HashMap<>();
+        data.put("content", broadcasts);
+        data.put("page", page);
+        data.put("size", size);
+        data.put("totalElements", broadcasts.size());
+        response.put("data", data);
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 广播通知的已读按用户记录；客户端未传 userId 时使用 token 中的用户
+    private String resolveUserId(String userId) {
+        if (userId != null && !userId.isEmpty()) {
+            return userId;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getName())) {
+            return null;
+        }
+        return authentication.getName();
+    }
 }
@@ -0,0 +1,35 @@
+package com.hitutor.controller;
+
+import com.hitutor.service.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+
+    private static final int MAX_BATCH_SIZE = 200;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getPresence(@RequestParam List<String> userIds) {
+        Set<String> ids = new LinkedHashSet<>(userIds);
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("一次最多查询" + MAX_BATCH_SIZE + "个用户");
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", presenceService.getPresence(ids));
+        return ResponseEntity.ok(response);
+    }
+}
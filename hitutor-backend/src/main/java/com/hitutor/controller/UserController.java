@@ -2,6 +2,7 @@ package com.hitutor.controller;
 
 import com.hitutor.dto.UserDTO;
 import com.hitutor.entity.User;
+import com.hitutor.service.ChatInboxService;
 import com.hitutor.service.UserService;
 import com.hitutor.util.DtoConverter;
 import com.hitutor.util.PasswordUtil;
@@ -26,6 +27,9 @@ public class UserController {
     @Autowired
     private PasswordUtil passwordUtil;
 
+    @Autowired
+    private ChatInboxService chatInboxService;
+
     @GetMapping("/me")
     public ResponseEntity<Map<String, Object>> getCurrentUser(@RequestParam(required = false) String userId) {
         Map<String, Object> response = new java.util.HashMap<>();
@@ -196,6 +200,9 @@ public class UserController {
             response.put("message", "更新失败");
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
+        if (userData.containsKey("username") || userData.containsKey("avatar")) {
+            chatInboxService.refreshPeerProfile(user.getId(), user.getUsername(), user.getAvatar());
+        }
         
         response.put("success", true);
         response.put("message", "更新成功");
@@ -239,6 +246,9 @@ public class UserController {
             response.put("message", "更新失败");
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
+        if (data.containsKey("username") || data.containsKey("avatar")) {
+            chatInboxService.refreshPeerProfile(user.getId(), user.getUsername(), user.getAvatar());
+        }
         
         response.put("success", true);
         response.put("message", "更新成功");
@@ -1,12 +1,14 @@
 package com.hitutor.controller;
 
 import com.hitutor.service.VerificationService;
+import com.hitutor.util.Futures;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/verifications")
@@ -16,21 +18,21 @@ public class VerificationController {
     private VerificationService verificationService;
 
     @PostMapping("/send")
-    public ResponseEntity<Map<String, Object>> sendVerificationCode(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> sendVerificationCode(@RequestBody Map<String, String> request) {
         String phone = request.get("phone");
 
-        try {
-            verificationService.sendVerificationCode(phone);
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "验证码已发送");
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(result);
-        }
+        return verificationService.sendVerificationCodeAsync(phone)
+                .handle((ignored, e) -> {
+                    Map<String, Object> result = new HashMap<>();
+                    if (e == null) {
+                        result.put("success", true);
+                        result.put("message", "验证码已发送");
+                        return ResponseEntity.ok(result);
+                    }
+                    result.put("success", false);
+                    result.put("message", Futures.unwrap(e).getMessage());
+                    return ResponseEntity.badRequest().body(result);
+                });
     }
 
     @PostMapping("/verify")
@@ -0,0 +1,176 @@
+package com.hitutor.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * 每个用户一份的会话列表投影，发送和已读时增量维护，会话列表只需按 (user_id, last_message_time) 做一次范围读取。
+ */
+@Document(collection = "chat_inbox")
+@CompoundIndexes({
+    @CompoundIndex(name = "uk_user_conversation", def = "{'user_id': 1, 'conversation_id': 1}", unique = true),
+    @CompoundIndex(name = "idx_user_last_message_time", def = "{'user_id': 1, 'last_message_time': -1}"),
+    @CompoundIndex(name = "idx_user_seq", def = "{'user_id': 1, 'seq': 1}"),
+    @CompoundIndex(name = "idx_peer_id", def = "{'peer_id': 1}")
+})
+public class ChatInboxEntry {
+
+    @Id
+    private String id;
+
+    @Field("user_id")
+    private String userId;
+
+    @Field("conversation_id")
+    private String conversationId;
+
+    @Field("peer_id")
+    private String peerId;
+
+    @Field("peer_name")
+    private String peerName;
+
+    @Field("peer_avatar")
+    private String peerAvatar;
+
+    @Field("last_message_id")
+    private String lastMessageId;
+
+    @Field("last_message_preview")
+    private String lastMessagePreview;
+
+    @Field("last_message_type")
+    private String lastMessageType;
+
+    @Field("last_sender_id")
+    private String lastSenderId;
+
+    @Field("last_message_time")
+    private LocalDateTime lastMessageTime;
+
+    @Field("unread_count")
+    private Integer unreadCount;
+
+    @Field("update_time")
+    private LocalDateTime updateTime;
+
+    @Field("seq")
+    private Long seq;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getPeerId() {
+        return peerId;
+    }
+
+    public void setPeerId(String peerId) {
+        this.peerId = peerId;
+    }
+
+    public String getPeerName() {
+        return peerName;
+    }
+
+    public void setPeerName(String peerName) {
+        this.peerName = peerName;
+    }
+
+    public String getPeerAvatar() {
+        return peerAvatar;
+    }
+
+    public void setPeerAvatar(String peerAvatar) {
+        this.peerAvatar = peerAvatar;
+    }
+
+    public String getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(String lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+
+    public String getLastMessageType() {
+        return lastMessageType;
+    }
+
+    public void setLastMessageType(String lastMessageType) {
+        this.lastMessageType = lastMessageType;
+    }
+
+    public String getLastSenderId() {
+        return lastSenderId;
+    }
+
+    public void setLastSenderId(String lastSenderId) {
+        this.lastSenderId = lastSenderId;
+    }
+
+    public LocalDateTime getLastMessageTime() {
+        return lastMessageTime;
+    }
+
+    public void setLastMessageTime(LocalDateTime lastMessageTime) {
+        this.lastMessageTime = lastMessageTime;
+    }
+
+    public Integer getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(Integer unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+}
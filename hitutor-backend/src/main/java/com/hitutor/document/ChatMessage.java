@@ -1,12 +1,20 @@
 package com.hitutor.document;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "chat_messages")
+@CompoundIndexes({
+    @CompoundIndex(name = "idx_conversation_create_time_id", def = "{'conversation_id': 1, 'create_time': 1, '_id': 1}"),
+    @CompoundIndex(name = "idx_receiver_read", def = "{'receiver_id': 1, 'is_read': 1}"),
+    @CompoundIndex(name = "idx_receiver_seq", def = "{'receiver_id': 1, 'seq': 1}"),
+    @CompoundIndex(name = "idx_sender_seq", def = "{'sender_id': 1, 'seq': 1}")
+})
 public class ChatMessage {
 
     @Id
@@ -33,6 +41,9 @@ public class ChatMessage {
     @Field("create_time")
     private LocalDateTime createTime;
 
+    @Field("seq")
+    private Long seq;
+
     public ChatMessage() {}
 
     public ChatMessage(String conversationId, String senderId, String receiverId, String content, String messageType) {
@@ -108,4 +119,12 @@ public class ChatMessage {
     public void setCreateTime(LocalDateTime createTime) {
         this.createTime = createTime;
     }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
 }
@@ -0,0 +1,115 @@
+package com.hitutor.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * 冷数据归档：保留桶的元数据，消息列表以 GZIP 压缩后的 JSON 存放在 payload 中。
+ */
+@Document(collection = "chat_message_archive")
+@CompoundIndex(name = "idx_conversation_start_time", def = "{'conversation_id': 1, 'start_time': 1}")
+public class ChatMessageArchive {
+
+    @Id
+    private String id;
+
+    @Field("conversation_id")
+    private String conversationId;
+
+    @Field("day")
+    private String day;
+
+    @Field("start_time")
+    private LocalDateTime startTime;
+
+    @Field("end_time")
+    private LocalDateTime endTime;
+
+    @Field("count")
+    private Integer count;
+
+    @Field("max_seq")
+    private Long maxSeq;
+
+    @Field("payload")
+    private byte[] payload;
+
+    @Field("archived_time")
+    private LocalDateTime archivedTime;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public void setDay(String day) {
+        this.day = day;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public Long getMaxSeq() {
+        return maxSeq;
+    }
+
+    public void setMaxSeq(Long maxSeq) {
+        this.maxSeq = maxSeq;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getArchivedTime() {
+        return archivedTime;
+    }
+
+    public void setArchivedTime(LocalDateTime archivedTime) {
+        this.archivedTime = archivedTime;
+    }
+}
@@ -0,0 +1,277 @@
+package com.hitutor.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 分桶存储：每个会话每天一个桶，超过条数上限时同一天再开新桶。
+ */
+@Document(collection = "chat_message_buckets")
+@CompoundIndexes({
+    @CompoundIndex(name = "idx_conversation_start_time", def = "{'conversation_id': 1, 'start_time': 1}"),
+    @CompoundIndex(name = "idx_conversation_day", def = "{'conversation_id': 1, 'day': 1}"),
+    @CompoundIndex(name = "idx_participants_max_seq", def = "{'participants': 1, 'max_seq': 1}"),
+    @CompoundIndex(name = "idx_end_time", def = "{'end_time': 1}")
+})
+public class ChatMessageBucket {
+
+    @Id
+    private String id;
+
+    @Field("conversation_id")
+    private String conversationId;
+
+    @Field("day")
+    private String day;
+
+    @Field("participants")
+    private List<String> participants;
+
+    @Field("start_time")
+    private LocalDateTime startTime;
+
+    @Field("end_time")
+    private LocalDateTime endTime;
+
+    @Field("count")
+    private Integer count;
+
+    @Field("max_seq")
+    private Long maxSeq;
+
+    @Field("messages")
+    private List<Entry> messages;
+
+    // 每次追加或置已读都会递增，归档删除原桶时以此判断归档期间桶是否被修改
+    @Field("version")
+    private Long version;
+
+    // 归档认领：持有者节点和租约到期时间，避免多个节点同时归档同一个桶
+    @Field("archive_owner")
+    private String archiveOwner;
+
+    @Field("archive_lease_until")
+    private LocalDateTime archiveLeaseUntil;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public void setDay(String day) {
+        this.day = day;
+    }
+
+    public List<String> getParticipants() {
+        return participants;
+    }
+
+    public void setParticipants(List<String> participants) {
+        this.participants = participants;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public Long getMaxSeq() {
+        return maxSeq;
+    }
+
+    public void setMaxSeq(Long maxSeq) {
+        this.maxSeq = maxSeq;
+    }
+
+    public List<Entry> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Entry> messages) {
+        this.messages = messages;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getArchiveOwner() {
+        return archiveOwner;
+    }
+
+    public void setArchiveOwner(String archiveOwner) {
+        this.archiveOwner = archiveOwner;
+    }
+
+    public LocalDateTime getArchiveLeaseUntil() {
+        return archiveLeaseUntil;
+    }
+
+    public void setArchiveLeaseUntil(LocalDateTime archiveLeaseUntil) {
+        this.archiveLeaseUntil = archiveLeaseUntil;
+    }
+
+    public static class Entry {
+
+        @Field("message_id")
+        private String messageId;
+
+        @Field("sender_id")
+        private String senderId;
+
+        @Field("receiver_id")
+        private String receiverId;
+
+        @Field("content")
+        private String content;
+
+        @Field("message_type")
+        private String messageType;
+
+        @Field("is_read")
+        private Boolean isRead;
+
+        @Field("create_time")
+        private LocalDateTime createTime;
+
+        @Field("seq")
+        private Long seq;
+
+        public Entry() {}
+
+        public static Entry of(ChatMessage message) {
+            Entry entry = new Entry();
+            entry.setMessageId(message.getId());
+            entry.setSenderId(message.getSenderId());
+            entry.setReceiverId(message.getReceiverId());
+            entry.setContent(message.getContent());
+            entry.setMessageType(message.getMessageType());
+            entry.setIsRead(message.getIsRead());
+            entry.setCreateTime(message.getCreateTime());
+            entry.setSeq(message.getSeq());
+            return entry;
+        }
+
+        public ChatMessage toMessage(String conversationId) {
+            ChatMessage message = new ChatMessage();
+            message.setId(messageId);
+            message.setConversationId(conversationId);
+            message.setSenderId(senderId);
+            message.setReceiverId(receiverId);
+            message.setContent(content);
+            message.setMessageType(messageType);
+            message.setIsRead(isRead);
+            message.setCreateTime(createTime);
+            message.setSeq(seq);
+            return message;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public void setMessageId(String messageId) {
+            this.messageId = messageId;
+        }
+
+        public String getSenderId() {
+            return senderId;
+        }
+
+        public void setSenderId(String senderId) {
+            this.senderId = senderId;
+        }
+
+        public String getReceiverId() {
+            return receiverId;
+        }
+
+        public void setReceiverId(String receiverId) {
+            this.receiverId = receiverId;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public void setContent(String content) {
+            this.content = content;
+        }
+
+        public String getMessageType() {
+            return messageType;
+        }
+
+        public void setMessageType(String messageType) {
+            this.messageType = messageType;
+        }
+
+        public Boolean getIsRead() {
+            return isRead;
+        }
+
+        public void setIsRead(Boolean isRead) {
+            this.isRead = isRead;
+        }
+
+        public LocalDateTime getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(LocalDateTime createTime) {
+            this.createTime = createTime;
+        }
+
+        public Long getSeq() {
+            return seq;
+        }
+
+        public void setSeq(Long seq) {
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.hitutor.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "chat_read_watermarks")
+@CompoundIndexes({
+    @CompoundIndex(name = "uk_conversation_user", def = "{'conversation_id': 1, 'user_id': 1}", unique = true),
+    @CompoundIndex(name = "idx_user_seq", def = "{'user_id': 1, 'seq': 1}"),
+    @CompoundIndex(name = "idx_peer_seq", def = "{'peer_id': 1, 'seq': 1}")
+})
+public class ChatReadWatermark {
+
+    @Id
+    private String id;
+
+    @Field("conversation_id")
+    private String conversationId;
+
+    @Field("user_id")
+    private String userId;
+
+    @Field("peer_id")
+    private String peerId;
+
+    @Field("last_read_time")
+    private LocalDateTime lastReadTime;
+
+    @Field("update_time")
+    private LocalDateTime updateTime;
+
+    @Field("seq")
+    private Long seq;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getLastReadTime() {
+        return lastReadTime;
+    }
+
+    public void setLastReadTime(LocalDateTime lastReadTime) {
+        this.lastReadTime = lastReadTime;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    public String getPeerId() {
+        return peerId;
+    }
+
+    public void setPeerId(String peerId) {
+        this.peerId = peerId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+}
@@ -0,0 +1,100 @@
+package com.hitutor.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 聊天消息的倒排检索文档，_id 与消息 ID 相同；tokens 为中文单字/双字及英文数字词。
+ * 发送方和接收方分开存放，避免复合索引中出现两个数组字段。
+ */
+@Document(collection = "chat_search_docs")
+@CompoundIndexes({
+    @CompoundIndex(name = "idx_conversation_tokens", def = "{'conversation_id': 1, 'tokens': 1, 'create_time': -1}"),
+    @CompoundIndex(name = "idx_sender_tokens", def = "{'sender_id': 1, 'tokens': 1, 'create_time': -1}"),
+    @CompoundIndex(name = "idx_receiver_tokens", def = "{'receiver_id': 1, 'tokens': 1, 'create_time': -1}")
+})
+public class ChatSearchDoc {
+
+    @Id
+    private String id;
+
+    @Field("conversation_id")
+    private String conversationId;
+
+    @Field("sender_id")
+    private String senderId;
+
+    @Field("receiver_id")
+    private String receiverId;
+
+    @Field("content")
+    private String content;
+
+    @Field("tokens")
+    private List<String> tokens;
+
+    @Field("create_time")
+    private LocalDateTime createTime;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(String senderId) {
+        this.senderId = senderId;
+    }
+
+    public String getReceiverId() {
+        return receiverId;
+    }
+
+    public void setReceiverId(String receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hitutor.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import java.time.LocalDateTime;
+
+@TableName("broadcast_read_watermarks")
+public class BroadcastReadWatermark {
+    
+    @TableId(value = "user_id", type = IdType.INPUT)
+    private String userId;
+    
+    @TableField("last_read_id")
+    private Long lastReadId;
+    
+    @TableField("update_time")
+    private LocalDateTime updateTime;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Long getLastReadId() {
+        return lastReadId;
+    }
+
+    public void setLastReadId(Long lastReadId) {
+        this.lastReadId = lastReadId;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -35,6 +35,10 @@ public class Notification {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createTime;
 
+    // 合并到通知列表中的广播通知，id 为广播通知ID
+    @TableField(exist = false)
+    private Boolean broadcast;
+
     public Long getId() {
         return id;
     }
@@ -106,4 +110,12 @@ public class Notification {
     public void setCreateTime(LocalDateTime createTime) {
         this.createTime = createTime;
     }
+
+    public Boolean getBroadcast() {
+        return broadcast;
+    }
+
+    public void setBroadcast(Boolean broadcast) {
+        this.broadcast = broadcast;
+    }
 }
@@ -0,0 +1,9 @@
+package com.hitutor.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hitutor.entity.BroadcastNotification;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface BroadcastNotificationMapper extends BaseMapper<BroadcastNotification> {
+}
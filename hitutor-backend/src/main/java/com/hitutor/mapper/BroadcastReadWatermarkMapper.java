@@ -0,0 +1,9 @@
+package com.hitutor.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hitutor.entity.BroadcastReadWatermark;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface BroadcastReadWatermarkMapper extends BaseMapper<BroadcastReadWatermark> {
+}
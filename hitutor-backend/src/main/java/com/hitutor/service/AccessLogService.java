@@ -0,0 +1,208 @@
+package com.hitutor.service;
+
+import com.hitutor.util.BoundedRingBuffer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class AccessLogService {
+
+    private static final Logger accessLogger = LoggerFactory.getLogger("ACCESS_LOG");
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogService.class);
+
+    private final BoundedRingBuffer<Entry> buffer;
+    private final double defaultSampleRate;
+    private final long slowThresholdMs;
+    private final int drainBatchSize;
+    private final Map<String, Double> routeSampleRates;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    public AccessLogService(@Value("${app.access-log.buffer-size:8192}") int bufferSize,
+                            @Value("${app.access-log.sample-rate:1.0}") double defaultSampleRate,
+                            @Value("${app.access-log.route-sample-rates:}") String routeSampleRates,
+                            @Value("${app.access-log.slow-threshold-ms:1000}") long slowThresholdMs,
+                            @Value("${app.access-log.drain-batch-size:4096}") int drainBatchSize) {
+        this.buffer = new BoundedRingBuffer<>(bufferSize);
+        this.defaultSampleRate = defaultSampleRate;
+        this.routeSampleRates = parseRouteSampleRates(routeSampleRates);
+        this.slowThresholdMs = slowThresholdMs;
+        this.drainBatchSize = drainBatchSize;
+    }
+
+    /**
+     * 在请求线程上调用，只做采样判断和一次无锁入队，缓冲区满时丢弃并计数。
+     */
+    public void record(Entry entry) {
+        if (!shouldLog(entry)) {
+            sampledOut.incrementAndGet();
+            return;
+        }
+        if (buffer.offer(entry)) {
+            accepted.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.access-log.flush-interval-ms:200}")
+    public void drain() {
+        int count = 0;
+        Entry entry;
+        while (count < drainBatchSize && (entry = buffer.poll()) != null) {
+            write(entry);
+            count++;
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        Entry entry;
+        while ((entry = buffer.poll()) != null) {
+            write(entry);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("accepted", accepted.get());
+        stats.put("sampledOut", sampledOut.get());
+        stats.put("dropped", dropped.get());
+        stats.put("written", written.get());
+        stats.put("pending", buffer.size());
+        stats.put("capacity", buffer.capacity());
+        stats.put("defaultSampleRate", defaultSampleRate);
+        stats.put("routeSampleRates", routeSampleRates);
+        stats.put("slowThresholdMs", slowThresholdMs);
+        return stats;
+    }
+
+    private boolean shouldLog(Entry entry) {
+        if (entry.getStatus() >= 500 || entry.getError() != null || entry.getDurationMs() >= slowThresholdMs) {
+            return true;
+        }
+        double rate = sampleRateFor(entry.getUri());
+        if (rate >= 1.0) {
+            return true;
+        }
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private double sampleRateFor(String uri) {
+        for (Map.Entry<String, Double> route : routeSampleRates.entrySet()) {
+            if (pathMatcher.match(route.getKey(), uri)) {
+                return route.getValue();
+            }
+        }
+        return defaultSampleRate;
+    }
+
+    private void write(Entry entry) {
+        try {
+            accessLogger.info("ts={} method={} uri={} status={} durationMs={} userId={} ip={} error={}",
+                    Instant.ofEpochMilli(entry.getTimestamp()), entry.getMethod(), entry.getUri(),
+                    entry.getStatus(), entry.getDurationMs(), entry.getUserId(), entry.getClientIp(),
+                    entry.getError());
+            written.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("Failed to write access log entry: {}", e.getMessage());
+        }
+    }
+
+    private static Map<String, Double> parseRouteSampleRates(String config) {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        if (config == null || config.trim().isEmpty()) {
+            return rates;
+        }
+        List<String> invalid = new ArrayList<>();
+        for (String item : config.split(",")) {
+            String[] parts = item.trim().split("=");
+            if (parts.length != 2) {
+                invalid.add(item);
+                continue;
+            }
+            try {
+                rates.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                invalid.add(item);
+            }
+        }
+        if (!invalid.isEmpty()) {
+            logger.warn("Ignored invalid access log sample rate entries: {}", invalid);
+        }
+        return rates;
+    }
+
+    public static class Entry {
+        private final long timestamp;
+        private final String method;
+        private final String uri;
+        private final int status;
+        private final long durationMs;
+        private final String userId;
+        private final String clientIp;
+        private final String error;
+
+        public Entry(long timestamp, String method, String uri, int status, long durationMs,
+                     String userId, String clientIp, String error) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.uri = uri;
+            this.status = status;
+            this.durationMs = durationMs;
+            this.userId = userId;
+            this.clientIp = clientIp;
+            this.error = error;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getClientIp() {
+            return clientIp;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
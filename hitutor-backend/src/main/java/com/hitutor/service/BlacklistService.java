@@ -6,11 +6,16 @@ import com.hitutor.entity.Blacklist;
 import com.hitutor.entity.User;
 import com.hitutor.repository.BlacklistRepository;
 import com.hitutor.service.UserService;
+import com.hitutor.util.LruCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class BlacklistService {
@@ -21,6 +26,17 @@ public class BlacklistService {
     @Autowired
     private UserService userService;
 
+    /**
+     * 拉黑关系缓存（含未拉黑的否定结果），键为 "userId:blockedUserId"。
+     * 本节点的变更在事务提交后失效对应条目，其他节点依赖过期时间收敛。
+     */
+    private final LruCache<String, Boolean> blockCache;
+
+    public BlacklistService(@Value("${app.chat.cache.block-max-size:100000}") int blockCacheMaxSize,
+                            @Value("${app.chat.cache.block-ttl-seconds:60}") long blockCacheTtlSeconds) {
+        this.blockCache = new LruCache<>(blockCacheMaxSize, blockCacheTtlSeconds * 1000);
+    }
+
     public Page<Blacklist> getAllBlacklist(int page, int size) {
         QueryWrapper<Blacklist> queryWrapper = new QueryWrapper<>();
         Page<Blacklist> pageParam = new Page<>(page, size);
@@ -52,7 +68,18 @@ public class BlacklistService {
     }
 
     public boolean isBlocked(String userId, String blockedUserId) {
-        return blacklistRepository.existsByUserIdAndBlockedUserId(userId, blockedUserId);
+        String key = cacheKey(userId, blockedUserId);
+        Boolean cached = blockCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean blocked = blacklistRepository.existsByUserIdAndBlockedUserId(userId, blockedUserId);
+        blockCache.put(key, blocked);
+        return blocked;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return blockCache.getStats();
     }
 
     @Transactional
@@ -65,6 +92,7 @@ public class BlacklistService {
         blacklist.setUserId(userId);
         blacklist.setBlockedUserId(blockedUserId);
         blacklistRepository.insert(blacklist);
+        evictAfterCommit(userId, blockedUserId);
         return blacklist;
     }
 
@@ -75,11 +103,34 @@ public class BlacklistService {
         }
         
         blacklistRepository.deleteByUserIdAndBlockedUserId(userId, blockedUserId);
+        evictAfterCommit(userId, blockedUserId);
         return true;
     }
 
     @Transactional
     public boolean deleteBlacklistEntry(Long id) {
-        return blacklistRepository.deleteById(id) > 0;
+        Blacklist entry = blacklistRepository.selectById(id);
+        boolean deleted = blacklistRepository.deleteById(id) > 0;
+        if (entry != null) {
+            evictAfterCommit(entry.getUserId(), entry.getBlockedUserId());
+        }
+        return deleted;
+    }
+
+    private void evictAfterCommit(String userId, String blockedUserId) {
+        String key = cacheKey(userId, blockedUserId);
+        blockCache.remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    blockCache.remove(key);
+                }
+            });
+        }
+    }
+
+    private String cacheKey(String userId, String blockedUserId) {
+        return userId + ":" + blockedUserId;
     }
 }
\ No newline at end of file
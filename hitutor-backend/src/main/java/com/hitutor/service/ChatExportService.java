@@ -0,0 +1,170 @@
+package com.hitutor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hitutor.document.ChatMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聊天记录导出：从存储游标逐条读取并直接写到输出流，内存占用与导出量无关。
+ * 导出中断后以最后一行的 conversationId 和 id 续传，存储按 (createTime, id) 键定位，续传开销与已导出量无关。
+ */
+@Service
+public class ChatExportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String[] CSV_COLUMNS = {
+        "id", "conversationId", "senderId", "receiverId", "messageType", "content", "isRead", "createTime", "seq"
+    };
+
+    // 独立的 ObjectMapper，时间按 ISO-8601 输出并保留毫秒
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Value("${app.chat.export.flush-every:500}")
+    private int flushEvery;
+
+    public static void checkFormat(String format) {
+        if (!FORMAT_NDJSON.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new IllegalArgumentException("不支持的导出格式");
+        }
+    }
+
+    /**
+     * 解析续传位置；在开始输出之前调用，续传的消息不存在时直接报错而不是输出半截响应。
+     */
+    public ChatMessage resumeAnchor(String conversationId, String afterMessageId) {
+        if (afterMessageId == null || afterMessageId.isEmpty()) {
+            return null;
+        }
+        if (conversationId == null || conversationId.isEmpty()) {
+            throw new IllegalArgumentException("续传需要同时指定会话");
+        }
+        ChatMessage anchor = chatMessageStore.findById(conversationId, afterMessageId);
+        if (anchor == null) {
+            throw new IllegalArgumentException("消息不存在");
+        }
+        return anchor;
+    }
+
+    public void exportConversation(String conversationId, String format, ChatMessage after, OutputStream out) throws IOException {
+        ExportWriter writer = new ExportWriter(out, format, after != null);
+        writer.begin();
+        chatMessageStore.forEach(conversationId, after, writer::write);
+        writer.finish();
+    }
+
+    /**
+     * 按会话 ID 升序依次导出用户参与的全部会话；续传时跳过续传位置所在会话之前的会话。
+     */
+    public void exportUser(String userId, String format, ChatMessage after, OutputStream out) throws IOException {
+        ExportWriter writer = new ExportWriter(out, format, after != null);
+        writer.begin();
+        Long afterConversationId = after != null ? Long.valueOf(after.getConversationId()) : null;
+        List<Long> conversationIds = conversationService.getConversationIdsByUser(userId);
+        for (Long id : conversationIds) {
+            if (afterConversationId != null && id < afterConversationId) {
+                continue;
+            }
+            chatMessageStore.forEach(id.toString(), id.equals(afterConversationId) ? after : null, writer::write);
+        }
+        writer.finish();
+    }
+
+    private class ExportWriter {
+        private final Writer writer;
+        private final boolean csv;
+        private final boolean resumed;
+        private int sinceFlush;
+
+        ExportWriter(OutputStream out, String format, boolean resumed) {
+            checkFormat(format);
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.csv = FORMAT_CSV.equals(format);
+            this.resumed = resumed;
+        }
+
+        void begin() throws IOException {
+            // 续传时不重复输出表头；BOM 便于 Excel 正确识别中文
+            if (csv && !resumed) {
+                writer.write('\uFEFF');
+                writer.write(String.join(",", CSV_COLUMNS));
+                writer.write('\n');
+            }
+        }
+
+        void write(ChatMessage message) {
+            try {
+                if (csv) {
+                    writeCsv(message);
+                } else {
+                    writer.write(MAPPER.writeValueAsString(toRow(message)));
+                    writer.write('\n');
+                }
+                // 定期刷出，避免缓冲区累积，也让客户端尽早收到数据
+                if (++sinceFlush >= flushEvery) {
+                    writer.flush();
+                    sinceFlush = 0;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        private Map<String, Object> toRow(ChatMessage message) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", message.getId());
+            row.put("conversationId", message.getConversationId());
+            row.put("senderId", message.getSenderId());
+            row.put("receiverId", message.getReceiverId());
+            row.put("messageType", message.getMessageType());
+            row.put("content", message.getContent());
+            row.put("isRead", message.getIsRead());
+            row.put("createTime", message.getCreateTime() != null ? message.getCreateTime().toString() : null);
+            row.put("seq", message.getSeq());
+            return row;
+        }
+
+        private void writeCsv(ChatMessage message) throws IOException {
+            Map<String, Object> row = toRow(message);
+            for (int i = 0; i < CSV_COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = row.get(CSV_COLUMNS[i]);
+                writer.write(value != null ? escapeCsv(value.toString()) : "");
+            }
+            writer.write('\n');
+        }
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,24 @@
+package com.hitutor.service;
+
+import com.hitutor.document.ChatInboxEntry;
+import com.hitutor.document.ChatMessage;
+import com.hitutor.entity.Conversation;
+
+import java.util.List;
+
+public interface ChatInboxService {
+
+    void onMessageSent(ChatMessage message);
+
+    void onConversationRead(String conversationId, String userId, long seq);
+
+    List<ChatInboxEntry> getInbox(String userId, int limit);
+
+    ChatInboxEntry getEntry(String userId, String conversationId);
+
+    void refreshPeerProfile(String userId, String username, String avatar);
+
+    boolean isBackfilled(String userId);
+
+    void backfill(String userId, List<Conversation> conversations);
+}
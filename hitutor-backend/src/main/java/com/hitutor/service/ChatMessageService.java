@@ -0,0 +1,20 @@
+package com.hitutor.service;
+
+import com.hitutor.document.ChatMessage;
+import com.hitutor.document.ChatReadWatermark;
+import org.springframework.data.domain.Page;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface ChatMessageService {
+    Page<ChatMessage> getMessagePage(String conversationId, int page, int size);
+    List<ChatMessage> getLatestMessages(String conversationId, int limit);
+    List<ChatMessage> getMessagesBefore(String conversationId, String messageId, int limit);
+    List<ChatMessage> getMessagesAfter(String conversationId, String messageId, int limit);
+    Flux<ChatMessage> streamHistory(String conversationId, String beforeMessageId, int limit);
+    CompletableFuture<ChatMessage> sendMessage(ChatMessage message);
+    long markAsRead(String conversationId, String userId);
+    ChatReadWatermark getReadWatermark(String conversationId, String userId);
+}
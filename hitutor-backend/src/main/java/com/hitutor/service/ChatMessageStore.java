@@ -0,0 +1,42 @@
+package com.hitutor.service;
+
+import com.hitutor.document.ChatMessage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 聊天消息存储，按 app.chat.storage.mode 选择逐条文档或按会话分桶的实现。
+ * 返回的消息列表均按 (createTime, id) 升序排列。
+ */
+public interface ChatMessageStore {
+
+    void insertAll(List<ChatMessage> messages);
+
+    void save(ChatMessage message);
+
+    long count(String conversationId);
+
+    List<ChatMessage> findPage(String conversationId, long offset, int limit);
+
+    List<ChatMessage> findLatest(String conversationId, int limit);
+
+    List<ChatMessage> findBefore(String conversationId, ChatMessage anchor, int limit);
+
+    List<ChatMessage> findAfter(String conversationId, ChatMessage anchor, int limit);
+
+    ChatMessage findById(String conversationId, String messageId);
+
+    /**
+     * 从 after 之后（after 为 null 时从头）按 (createTime, id) 顺序逐条回调，用于导出；
+     * 实现不能把整个会话一次性加载到内存，续传按键定位而不是跳过计数。
+     */
+    void forEach(String conversationId, ChatMessage after, Consumer<ChatMessage> consumer);
+
+    long markRead(String conversationId, String receiverId);
+
+    List<ChatMessage> findChangedSince(String userId, long cursor, long highWater, int limit);
+
+    Map<String, Object> getStats();
+}
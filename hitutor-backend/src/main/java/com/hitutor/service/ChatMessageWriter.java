@@ -0,0 +1,511 @@
+package com.hitutor.service;
+
+import com.hitutor.document.ChatMessage;
+import com.hitutor.util.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 聊天消息组提交：消息先进入有界队列，由单个写线程按批次 insertMany 写入，
+ * 批次在达到最大条数或首条消息等待超过最大延迟时提交；写入成功后才完成发送方的 Future。
+ */
+@Service
+public class ChatMessageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriter.class);
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Autowired
+    private SyncSequenceService syncSequenceService;
+
+    @Autowired
+    private ChatSearchService chatSearchService;
+
+    @Autowired(required = false)
+    private ReactiveChatMessageStore reactiveChatMessageStore;
+
+    @Value("${app.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${app.chat.writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.chat.writer.max-batch-size:256}")
+    private int maxBatchSize;
+
+    @Value("${app.chat.writer.max-latency-ms:5}")
+    private long maxLatencyMs;
+
+    @Value("${app.chat.writer.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.chat.writer.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${app.chat.writer.callback-threads:4}")
+    private int callbackThreads;
+
+    @Value("${app.chat.writer.callback-queue-capacity:10000}")
+    private int callbackQueueCapacity;
+
+    private BlockingQueue<PendingWrite> queue;
+    private ExecutorService callbackExecutor;
+    private Semaphore inFlightBatches;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    // submit 持读锁检查 running 并入队，stop 持写锁置 running=false，之后不会再有消息进入队列
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong searchIndexFailures = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong fallbackWrites = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+    private final AtomicLong callbackPending = new AtomicLong();
+    private final AtomicLong maxCallbackDepth = new AtomicLong();
+    private final AtomicLong callbackCallerRuns = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        inFlightBatches = new Semaphore(maxInFlight);
+        // 回调中会更新收件箱并投递消息，虚拟线程模式下每个回调一个虚拟线程
+        if (virtualThreadsEnabled && VirtualThreads.isSupported()) {
+            callbackExecutor = VirtualThreads.newExecutor("chat-writer-callback-");
+        } else {
+            callbackExecutor = new ThreadPoolExecutor(callbackThreads, callbackThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(callbackQueueCapacity), new CustomizableThreadFactory("chat-writer-callback-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "chat-message-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        submitLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            // 等待响应式模式下已提交的批次完成
+            if (inFlightBatches.tryAcquire(maxInFlight, 10, TimeUnit.SECONDS)) {
+                inFlightBatches.release(maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        while (!remaining.isEmpty()) {
+            int end = Math.min(maxBatchSize, remaining.size());
+            writeBatch(new ArrayList<>(remaining.subList(0, end)));
+            remaining.subList(0, end).clear();
+        }
+        // 写线程未在等待时间内退出时，它之后取走的批次仍会写入；队列里若还有漏网的消息直接失败，不让 Future 永远悬挂
+        List<PendingWrite> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        for (PendingWrite write : leftover) {
+            failed.incrementAndGet();
+            write.future.completeExceptionally(new RuntimeException("消息服务正在关闭，请稍后重试"));
+        }
+        callbackExecutor.shutdown();
+    }
+
+    /**
+     * 在入队前分配 ObjectId 和创建时间，队列满且在 offer-timeout-ms 内仍无空位时直接拒绝，
+     * 把压力反馈给发送方而不是无限堆积。
+     */
+    public CompletableFuture<ChatMessage> submit(ChatMessage message) {
+        return submit(message, null);
+    }
+
+    /**
+     * afterWrite 在消息落库后、Future 完成前于回调线程上执行，执行期间消息的同步序号仍处于在途状态，
+     * 以该序号写入的投影（如收件箱条目）不会被同步游标越过。
+     */
+    public CompletableFuture<ChatMessage> submit(ChatMessage message, Consumer<ChatMessage> afterWrite) {
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+        if (message.getCreateTime() == null) {
+            message.setCreateTime(LocalDateTime.now());
+        }
+        CompletableFuture<ChatMessage> future = new CompletableFuture<>();
+        boolean accepted;
+        submitLock.readLock().lock();
+        try {
+            accepted = running && queue.offer(new PendingWrite(message, afterWrite, future), offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        } finally {
+            submitLock.readLock().unlock();
+        }
+        if (!accepted) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new RuntimeException("消息发送繁忙，请稍后重试"));
+        }
+        submitted.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        return future;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("capacity", queueCapacity);
+        stats.put("maxQueueDepth", maxQueueDepth.get());
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("written", written.get());
+        stats.put("failed", failed.get());
+        stats.put("searchIndexFailures", searchIndexFailures.get());
+        stats.put("batches", batches.get());
+        stats.put("fallbackWrites", fallbackWrites.get());
+        stats.put("averageBatchSize", batches.get() > 0 ? (double) written.get() / batches.get() : 0);
+        stats.put("lastBatchSize", lastBatchSize.get());
+        stats.put("lastBatchMillis", lastBatchMillis.get());
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("maxLatencyMs", maxLatencyMs);
+        stats.put("ioMode", reactiveChatMessageStore != null ? "reactive" : "blocking");
+        stats.put("inFlightBatches", maxInFlight - inFlightBatches.availablePermits());
+        stats.put("callbackQueued", callbackPending.get());
+        stats.put("callbackCapacity", callbackQueueCapacity);
+        stats.put("maxCallbackDepth", maxCallbackDepth.get());
+        stats.put("callbackCallerRuns", callbackCallerRuns.get());
+        return stats;
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                if (!running) {
+                    return;
+                }
+            } catch (Exception e) {
+                logger.error("Chat message writer loop failed: {}", e.getMessage(), e);
+            } finally {
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        // 关闭阶段走阻塞路径，保证剩余消息在 stop 返回前落库
+        if (reactiveChatMessageStore != null && running) {
+            writeBatchReactive(batch);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<ChatMessage> messages = toMessages(batch);
+        // 预留失败时沿用不释放任何序号的空持有
+        SequenceHold hold = new SequenceHold(-1, batch.size());
+        try {
+            hold = new SequenceHold(assignSequences(messages), batch.size());
+            chatMessageStore.insertAll(messages);
+            for (PendingWrite write : batch) {
+                complete(write, hold);
+            }
+            written.addAndGet(batch.size());
+            dispatch(() -> indexForSearch(messages));
+        } catch (Exception e) {
+            logger.warn("Batch insert of {} chat messages failed, retrying individually: {}", batch.size(), e.getMessage());
+            retryIndividually(batch, hold);
+        }
+        recordBatch(batch.size(), start);
+    }
+
+    /**
+     * 响应式模式：写线程只负责组批和分配序号，插入由驱动异步完成；
+     * 同时进行中的批次数受 max-in-flight 限制，达到上限时写线程等待，队列随之积压形成背压。
+     */
+    private void writeBatchReactive(List<PendingWrite> batch) {
+        long start = System.currentTimeMillis();
+        List<ChatMessage> messages = toMessages(batch);
+        // 预留失败时沿用不释放任何序号的空持有
+        SequenceHold hold = new SequenceHold(-1, batch.size());
+        try {
+            hold = new SequenceHold(assignSequences(messages), batch.size());
+            inFlightBatches.acquire();
+        } catch (InterruptedException e) {
+            writeBatchBlocking(batch, hold);
+            return;
+        } catch (Exception e) {
+            logger.warn("Failed to assign sequences for {} chat messages, retrying individually: {}", batch.size(), e.getMessage());
+            retryIndividually(batch, hold);
+            recordBatch(batch.size(), start);
+            return;
+        }
+        SequenceHold batchHold = hold;
+        reactiveChatMessageStore.insertAll(messages).subscribe(null, error -> {
+            inFlightBatches.release();
+            logger.warn("Reactive insert of {} chat messages failed, retrying individually: {}", batch.size(), error.getMessage());
+            dispatch(() -> {
+                retryIndividually(batch, batchHold);
+                recordBatch(batch.size(), start);
+            });
+        }, () -> {
+            inFlightBatches.release();
+            for (PendingWrite write : batch) {
+                complete(write, batchHold);
+            }
+            written.addAndGet(batch.size());
+            recordBatch(batch.size(), start);
+            dispatch(() -> indexForSearch(messages));
+        });
+    }
+
+    private void writeBatchBlocking(List<PendingWrite> batch, SequenceHold hold) {
+        long start = System.currentTimeMillis();
+        try {
+            chatMessageStore.insertAll(toMessages(batch));
+            for (PendingWrite write : batch) {
+                complete(write, hold);
+            }
+            written.addAndGet(batch.size());
+            List<ChatMessage> messages = toMessages(batch);
+            dispatch(() -> indexForSearch(messages));
+        } catch (Exception e) {
+            retryIndividually(batch, hold);
+        }
+        recordBatch(batch.size(), start);
+    }
+
+    // 批量写入部分失败时逐条重试；ID 已预先分配，save 对已写入的消息是幂等的
+    private void retryIndividually(List<PendingWrite> batch, SequenceHold hold) {
+        List<ChatMessage> saved = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            SequenceHold writeHold = hold;
+            try {
+                if (write.message.getSeq() == null) {
+                    // 整批预留失败时逐条预留，该消息不再占用批次的序号段
+                    long seq = syncSequenceService.next();
+                    hold.arrive();
+                    writeHold = new SequenceHold(seq, 1);
+                    write.message.setSeq(seq);
+                }
+                chatMessageStore.save(write.message);
+                fallbackWrites.incrementAndGet();
+                written.incrementAndGet();
+                saved.add(write.message);
+                complete(write, writeHold);
+            } catch (Exception ex) {
+                failed.incrementAndGet();
+                SequenceHold failedHold = writeHold;
+                dispatch(() -> {
+                    try {
+                        write.future.completeExceptionally(new RuntimeException("消息保存失败", ex));
+                    } finally {
+                        failedHold.arrive();
+                    }
+                });
+            }
+        }
+        dispatch(() -> indexForSearch(saved));
+    }
+
+    private List<ChatMessage> toMessages(List<PendingWrite> batch) {
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            messages.add(write.message);
+        }
+        return messages;
+    }
+
+    private void recordBatch(int size, long start) {
+        batches.incrementAndGet();
+        lastBatchSize.set(size);
+        lastBatchMillis.set(System.currentTimeMillis() - start);
+    }
+
+    // 整批只预留一次序号；重试的批次沿用已分配的序号。返回预留的首个序号，未预留时返回 -1
+    private long assignSequences(List<ChatMessage> messages) {
+        int missing = 0;
+        for (ChatMessage message : messages) {
+            if (message.getSeq() == null) {
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return -1;
+        }
+        long first = syncSequenceService.reserve(missing);
+        long seq = first;
+        for (ChatMessage message : messages) {
+            if (message.getSeq() == null) {
+                message.setSeq(seq++);
+            }
+        }
+        return first;
+    }
+
+    // 检索索引在每批写入成功后放到回调线程池批量更新，不占用写线程、不计入批次耗时；失败只记录，不影响消息发送
+    private void indexForSearch(List<ChatMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            chatSearchService.indexAll(messages);
+        } catch (Exception e) {
+            searchIndexFailures.addAndGet(messages.size());
+            logger.warn("Failed to index {} chat messages for search: {}", messages.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 在回调线程池上执行写入后回调（收件箱等以消息序号写入的投影）并完成 Future，不占用写线程；
+     * 全部完成后才释放序号，同步高水位不会越过尚未写完的投影。
+     */
+    private void complete(PendingWrite write, SequenceHold hold) {
+        dispatch(() -> {
+            try {
+                if (write.afterWrite != null) {
+                    try {
+                        write.afterWrite.accept(write.message);
+                    } catch (Exception e) {
+                        logger.warn("Post-write callback failed for chat message {}: {}", write.message.getId(), e.getMessage());
+                    }
+                }
+                write.future.complete(write.message);
+            } finally {
+                hold.arrive();
+            }
+        });
+    }
+
+    /**
+     * 回调积压（含执行中）达到 callback-queue-capacity 或线程池已关闭时由调用线程直接执行：
+     * 写线程被回调拖慢，消息队列随之积压，最终在 submit 处拒绝发送，形成端到端的背压。
+     */
+    private void dispatch(Runnable task) {
+        long depth = callbackPending.incrementAndGet();
+        if (depth > callbackQueueCapacity) {
+            callbackPending.decrementAndGet();
+            runOnCaller(task);
+            return;
+        }
+        maxCallbackDepth.accumulateAndGet(depth, Math::max);
+        try {
+            callbackExecutor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    callbackPending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            callbackPending.decrementAndGet();
+            runOnCaller(task);
+        }
+    }
+
+    private void runOnCaller(Runnable task) {
+        callbackCallerRuns.incrementAndGet();
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.warn("Chat writer callback failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static class PendingWrite {
+        private final ChatMessage message;
+        private final Consumer<ChatMessage> afterWrite;
+        private final CompletableFuture<ChatMessage> future;
+
+        PendingWrite(ChatMessage message, Consumer<ChatMessage> afterWrite, CompletableFuture<ChatMessage> future) {
+            this.message = message;
+            this.afterWrite = afterWrite;
+            this.future = future;
+        }
+    }
+
+    /**
+     * 一段预留序号的持有计数：批次中每条消息的回调结束（成功或失败）各到达一次，全部到达后释放。
+     */
+    private class SequenceHold {
+        private final long first;
+        private final AtomicInteger pending;
+
+        SequenceHold(long first, int parties) {
+            this.first = first;
+            this.pending = new AtomicInteger(parties);
+        }
+
+        void arrive() {
+            if (pending.decrementAndGet() == 0 && first >= 0) {
+                syncSequenceService.release(first);
+            }
+        }
+    }
+}
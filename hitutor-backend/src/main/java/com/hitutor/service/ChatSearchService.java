@@ -0,0 +1,12 @@
+package com.hitutor.service;
+
+import com.hitutor.document.ChatMessage;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ChatSearchService {
+    void indexAll(List<ChatMessage> messages);
+
+    Map<String, Object> search(String userId, String conversationId, String keyword, int page, int size, int contextSize);
+}
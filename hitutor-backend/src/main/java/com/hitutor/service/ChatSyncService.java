@@ -0,0 +1,7 @@
+package com.hitutor.service;
+
+import java.util.Map;
+
+public interface ChatSyncService {
+    Map<String, Object> sync(String userId, long cursor, int limit);
+}
@@ -0,0 +1,11 @@
+package com.hitutor.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface ConversationActivityService {
+    void recordActivity(Long conversationId, LocalDateTime messageTime);
+    LocalDateTime getPendingLastMessageTime(Long conversationId);
+    int flush();
+    Map<String, Object> getStats();
+}
@@ -2,9 +2,16 @@ package com.hitutor.service;
 
 import com.hitutor.entity.Conversation;
 
+import java.util.List;
+import java.util.Map;
+
 public interface ConversationService {
     Conversation getOrCreateConversation(String user1Id, String user2Id);
     Conversation getConversationById(Long id);
     Conversation getConversationByUsers(String user1Id, String user2Id);
+    List<Long> getConversationIdsByUser(String userId);
     boolean updateConversation(Conversation conversation);
+    void cacheConversation(Conversation conversation);
+    void evictConversation(String user1Id, String user2Id);
+    Map<String, Object> getCacheStats();
 }
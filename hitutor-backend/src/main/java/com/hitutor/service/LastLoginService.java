@@ -0,0 +1,10 @@
+package com.hitutor.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface LastLoginService {
+    void recordLogin(String userId, LocalDateTime loginTime, String loginIp);
+    int flush();
+    Map<String, Object> getStats();
+}
@@ -1,6 +1,7 @@
 package com.hitutor.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.hitutor.entity.BroadcastNotification;
 import com.hitutor.entity.Notification;
 
 import java.util.List;
@@ -13,4 +14,9 @@ public interface NotificationService extends IService<Notification> {
     int getUnreadCount(String userId);
     boolean deleteNotification(Long notificationId);
     List<Notification> getAllNotifications(Integer page, Integer size);
+    BroadcastNotification createBroadcast(String type, String title, String content);
+    boolean markBroadcastAsRead(String userId, Long broadcastId);
+    boolean isBroadcastId(Long notificationId);
+    Long toBroadcastId(Long notificationId);
+    List<BroadcastNotification> getAllBroadcasts(Integer page, Integer size);
 }
@@ -0,0 +1,95 @@
+package com.hitutor.service;
+
+import com.hitutor.websocket.ChatClusterTransport;
+import com.hitutor.websocket.ChatSessionRegistry;
+import com.hitutor.websocket.PresenceChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在线状态查询：本节点会话直接查内存，其余用户一次批量查询集群在线映射；
+ * 最近活跃时间由 STOMP 入站帧（含心跳）刷新，下线时间写入集群存储。
+ */
+@Service
+public class PresenceService {
+
+    @Autowired
+    private ChatSessionRegistry sessionRegistry;
+
+    @Autowired
+    private ChatClusterTransport clusterTransport;
+
+    private final Map<String, Long> lastActivity = new ConcurrentHashMap<>();
+
+    private final AtomicLong heartbeats = new AtomicLong();
+    private final AtomicLong onlineEvents = new AtomicLong();
+    private final AtomicLong offlineEvents = new AtomicLong();
+
+    public void touch(String userId) {
+        heartbeats.incrementAndGet();
+        lastActivity.put(userId, System.currentTimeMillis());
+    }
+
+    public boolean isOnline(String userId) {
+        return sessionRegistry.isOnline(userId) || !clusterTransport.getNodes(userId).isEmpty();
+    }
+
+    public Map<String, Map<String, Object>> getPresence(Collection<String> userIds) {
+        List<String> remote = new ArrayList<>();
+        for (String userId : userIds) {
+            if (!sessionRegistry.isOnline(userId)) {
+                remote.add(userId);
+            }
+        }
+        Set<String> onlineRemote = clusterTransport.getOnlineUsers(remote);
+        Set<String> offline = new HashSet<>();
+        for (String userId : remote) {
+            if (!onlineRemote.contains(userId)) {
+                offline.add(userId);
+            }
+        }
+        Map<String, Long> lastSeen = clusterTransport.getLastSeen(offline);
+
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            boolean online = !offline.contains(userId);
+            Map<String, Object> presence = new HashMap<>();
+            presence.put("online", online);
+            presence.put("lastSeen", online ? lastActivity.get(userId) : lastSeen.get(userId));
+            result.put(userId, presence);
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        if (event.isOnline()) {
+            onlineEvents.incrementAndGet();
+            lastActivity.put(event.getUserId(), event.getTimestamp());
+        } else {
+            offlineEvents.incrementAndGet();
+            lastActivity.remove(event.getUserId());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trackedUsers", lastActivity.size());
+        stats.put("heartbeats", heartbeats.get());
+        stats.put("onlineEvents", onlineEvents.get());
+        stats.put("offlineEvents", offlineEvents.get());
+        return stats;
+    }
+}
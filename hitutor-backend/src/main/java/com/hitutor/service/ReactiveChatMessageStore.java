@@ -0,0 +1,21 @@
+package com.hitutor.service;
+
+import com.hitutor.document.ChatMessage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 基于响应式 Mongo 驱动的消息读写，仅在 app.chat.io-mode=reactive 时启用。
+ * 流式读取按 (create_time, _id) 降序返回，无需缓冲整页后再反转。
+ */
+public interface ReactiveChatMessageStore {
+    Mono<Void> insertAll(List<ChatMessage> messages);
+
+    Mono<ChatMessage> findById(String conversationId, String messageId);
+
+    Flux<ChatMessage> streamLatest(String conversationId, int limit);
+
+    Flux<ChatMessage> streamBefore(String conversationId, ChatMessage anchor, int limit);
+}
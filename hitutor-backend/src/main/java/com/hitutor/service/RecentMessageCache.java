@@ -0,0 +1,399 @@
+package com.hitutor.service;
+
+import com.hitutor.document.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 最近活跃会话的最新 N 条消息缓存，每个会话一个环形缓冲区，按估算的总内存预算淘汰最久未访问的会话。
+ * 环存放在 ConcurrentHashMap 中、各自加锁，不同会话的发送和首屏读取互不阻塞。
+ * 环中消息不足请求条数时，只有在已知会话没有更早消息（complete）的情况下才算命中。
+ * 从存储加载前先登记加载中的环，加载期间追加的消息记录在环中，填充时与读到的消息合并。
+ * 集群部署时其他节点发送的消息不会追加到本节点的环中：未配置 ttl-ms 时，local 集群模式下不过期，
+ * 其他集群模式默认 5 秒过期，限制首屏的陈旧时间。
+ */
+@Service
+public class RecentMessageCache {
+
+    private static final Comparator<ChatMessage> MESSAGE_ORDER =
+            Comparator.comparing(ChatMessage::getCreateTime).thenComparing(ChatMessage::getId);
+
+    // 对象头、引用和固定字段的粗略开销
+    private static final int MESSAGE_OVERHEAD_BYTES = 256;
+    private static final int RING_OVERHEAD_BYTES = 128;
+
+    private static final long CLUSTER_DEFAULT_TTL_MILLIS = 5000;
+
+    private final int capacity;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong loadSequence = new AtomicLong();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong partialMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RecentMessageCache(@Value("${app.chat.recent-cache.messages-per-conversation:50}") int capacity,
+                              @Value("${app.chat.recent-cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${app.chat.recent-cache.ttl-ms:-1}") long ttlMillis,
+                              @Value("${app.chat.cluster.mode:local}") String clusterMode) {
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        if (ttlMillis < 0) {
+            ttlMillis = "local".equals(clusterMode) ? 0 : CLUSTER_DEFAULT_TTL_MILLIS;
+        }
+        this.ttlMillis = ttlMillis;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 返回最新的 limit 条消息（升序）；缓存无法完整回答时返回 null。
+     */
+    public List<ChatMessage> getLatest(String conversationId, int limit) {
+        Ring ring = rings.get(conversationId);
+        if (ring == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        synchronized (ring) {
+            if (ring.removed || ring.loading || isExpired(ring)) {
+                if (!ring.removed && !ring.loading) {
+                    removeRing(conversationId, ring);
+                }
+                misses.incrementAndGet();
+                return null;
+            }
+            if (limit > capacity || (ring.size < limit && !ring.complete)) {
+                partialMisses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            ring.lastAccess = accessClock.incrementAndGet();
+            return ring.latest(limit);
+        }
+    }
+
+    /**
+     * 发送成功后追加；只更新已在缓存中的会话，未缓存的会话等首次读取时再整体加载。
+     */
+    public void append(ChatMessage message) {
+        Ring ring = rings.get(message.getConversationId());
+        if (ring == null) {
+            return;
+        }
+        synchronized (ring) {
+            if (ring.removed) {
+                return;
+            }
+            totalBytes.addAndGet(ring.add(message));
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * 在读取存储之前调用，返回本次加载的令牌；之后追加的消息会记录在加载中的环里。
+     * 会话已有环（内容不完整）时沿用它，已有的消息在填充时一并合并。
+     */
+    public long beginLoad(String conversationId) {
+        long token;
+        while (true) {
+            Ring ring = rings.computeIfAbsent(conversationId, key -> {
+                Ring created = new Ring(capacity);
+                totalBytes.addAndGet(created.bytes);
+                return created;
+            });
+            synchronized (ring) {
+                if (ring.removed) {
+                    continue;
+                }
+                ring.loading = true;
+                ring.loadToken = loadSequence.incrementAndGet();
+                ring.lastAccess = accessClock.incrementAndGet();
+                token = ring.loadToken;
+                break;
+            }
+        }
+        evictIfNeeded();
+        return token;
+    }
+
+    /**
+     * 加载失败时撤销加载中的环，已追加的消息随之丢弃，下次读取重新加载。
+     */
+    public void cancelLoad(String conversationId, long token) {
+        Ring ring = rings.get(conversationId);
+        if (ring == null) {
+            return;
+        }
+        synchronized (ring) {
+            if (ring.loadToken == token) {
+                removeRing(conversationId, ring);
+            }
+        }
+    }
+
+    /**
+     * 用存储中读到的最新消息填充，并与加载期间追加的消息合并去重。
+     * 加载中的环已被淘汰或被更新的加载取代时放弃本次填充，避免装入缺少并发消息的环。
+     */
+    public void fill(String conversationId, List<ChatMessage> latest, long token) {
+        Ring ring = rings.get(conversationId);
+        if (ring == null) {
+            return;
+        }
+        synchronized (ring) {
+            if (ring.removed || ring.loadToken != token) {
+                return;
+            }
+            List<ChatMessage> merged = new ArrayList<>(latest);
+            Set<String> loadedIds = new HashSet<>();
+            for (ChatMessage message : latest) {
+                loadedIds.add(message.getId());
+            }
+            for (ChatMessage message : ring.latest(ring.size)) {
+                if (!loadedIds.contains(message.getId())) {
+                    merged.add(message);
+                }
+            }
+            merged.sort(MESSAGE_ORDER);
+            totalBytes.addAndGet(ring.reload(merged, latest.size() < capacity));
+        }
+        evictIfNeeded();
+    }
+
+    public void markRead(String conversationId, String receiverId) {
+        Ring ring = rings.get(conversationId);
+        if (ring == null) {
+            return;
+        }
+        synchronized (ring) {
+            for (ChatMessage message : ring.latest(ring.size)) {
+                if (receiverId.equals(message.getReceiverId())) {
+                    message.setIsRead(true);
+                }
+            }
+        }
+    }
+
+    public void evict(String conversationId) {
+        Ring ring = rings.get(conversationId);
+        if (ring == null) {
+            return;
+        }
+        synchronized (ring) {
+            removeRing(conversationId, ring);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get() + partialMisses.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("conversations", rings.size());
+        stats.put("messagesPerConversation", capacity);
+        stats.put("estimatedBytes", totalBytes.get());
+        stats.put("maxBytes", maxBytes);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("partialMisses", partialMisses.get());
+        stats.put("hitRate", total > 0 ? (double) hitCount / total : 0);
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private boolean isExpired(Ring ring) {
+        return ttlMillis > 0 && System.currentTimeMillis() - ring.loadedAt > ttlMillis;
+    }
+
+    // 调用方持有 ring 的锁
+    private void removeRing(String conversationId, Ring ring) {
+        if (rings.remove(conversationId, ring)) {
+            ring.removed = true;
+            totalBytes.addAndGet(-ring.bytes);
+        }
+    }
+
+    /**
+     * 超出预算时由一个线程按最近访问顺序淘汰到预算的 90%，其他线程不等待；
+     * 淘汰只在超预算时排序一次，不在每次访问时维护全局 LRU 链表。
+     */
+    private void evictIfNeeded() {
+        if (totalBytes.get() <= maxBytes || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // 先快照访问时间再排序，排序期间的并发访问不影响比较结果
+            List<Candidate> candidates = new ArrayList<>(rings.size());
+            rings.forEach((conversationId, ring) -> candidates.add(new Candidate(conversationId, ring, ring.lastAccess)));
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+            long target = maxBytes / 10 * 9;
+            for (Candidate candidate : candidates) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                synchronized (candidate.ring) {
+                    if (!candidate.ring.removed) {
+                        removeRing(candidate.conversationId, candidate.ring);
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static long estimateBytes(ChatMessage message) {
+        long bytes = MESSAGE_OVERHEAD_BYTES;
+        bytes += lengthOf(message.getId()) + lengthOf(message.getConversationId())
+                + lengthOf(message.getSenderId()) + lengthOf(message.getReceiverId())
+                + lengthOf(message.getContent()) + lengthOf(message.getMessageType());
+        return bytes;
+    }
+
+    private static long lengthOf(String value) {
+        return value != null ? 2L * value.length() : 0;
+    }
+
+    private static class Candidate {
+        private final String conversationId;
+        private final Ring ring;
+        private final long lastAccess;
+
+        Candidate(String conversationId, Ring ring, long lastAccess) {
+            this.conversationId = conversationId;
+            this.ring = ring;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * 定长环形缓冲区，按 (createTime, id) 升序保存；ID 集合用于去重。
+     * 由外层对环加锁后访问。
+     */
+    private static class Ring {
+        private final ChatMessage[] slots;
+        private final Set<String> ids = new HashSet<>();
+        private int head;
+        private int size;
+        private long bytes = RING_OVERHEAD_BYTES;
+        private boolean complete;
+        private boolean loading;
+        private boolean removed;
+        private long loadToken;
+        private long loadedAt = System.currentTimeMillis();
+        private volatile long lastAccess;
+
+        Ring(int capacity) {
+            this.slots = new ChatMessage[capacity];
+        }
+
+        /**
+         * 追加一条消息，返回内存估算的变化量。通常新消息落在尾部，O(1) 写入；
+         * 并发完成的写入可能乱序到达，从尾部向前找到插入位置后移动其后的元素。
+         */
+        long add(ChatMessage message) {
+            if (slots.length == 0 || ids.contains(message.getId())) {
+                return 0;
+            }
+            long before = bytes;
+            int index = size;
+            while (index > 0 && MESSAGE_ORDER.compare(get(index - 1), message) > 0) {
+                index--;
+            }
+            if (index == 0 && size == slots.length) {
+                // 比环中最旧的消息还旧且环已满，丢弃
+                complete = false;
+                return 0;
+            }
+            if (size == slots.length) {
+                dropHead();
+                index--;
+            }
+            for (int i = size; i > index; i--) {
+                set(i, get(i - 1));
+            }
+            set(index, message);
+            size++;
+            ids.add(message.getId());
+            bytes += estimateBytes(message);
+            return bytes - before;
+        }
+
+        /**
+         * 用有序的消息重建环并结束加载，返回内存估算的变化量。
+         */
+        long reload(List<ChatMessage> ordered, boolean completeHistory) {
+            long before = bytes;
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = null;
+            }
+            ids.clear();
+            head = 0;
+            size = 0;
+            bytes = RING_OVERHEAD_BYTES;
+            complete = completeHistory;
+            int start = Math.max(0, ordered.size() - slots.length);
+            if (start > 0) {
+                complete = false;
+            }
+            for (int i = start; i < ordered.size(); i++) {
+                ChatMessage message = ordered.get(i);
+                if (ids.add(message.getId())) {
+                    slots[size++] = message;
+                    bytes += estimateBytes(message);
+                }
+            }
+            loading = false;
+            loadedAt = System.currentTimeMillis();
+            return bytes - before;
+        }
+
+        List<ChatMessage> latest(int limit) {
+            int count = Math.min(limit, size);
+            List<ChatMessage> list = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                list.add(get(i));
+            }
+            return list;
+        }
+
+        private void dropHead() {
+            ChatMessage oldest = slots[head];
+            slots[head] = null;
+            ids.remove(oldest.getId());
+            bytes -= estimateBytes(oldest);
+            head = (head + 1) % slots.length;
+            size--;
+            complete = false;
+        }
+
+        private ChatMessage get(int index) {
+            return slots[(head + index) % slots.length];
+        }
+
+        private void set(int index, ChatMessage message) {
+            slots[(head + index) % slots.length] = message;
+        }
+    }
+}
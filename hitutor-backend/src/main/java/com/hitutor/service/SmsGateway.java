@@ -0,0 +1,150 @@
+package com.hitutor.service;
+
+import com.hitutor.util.CircuitBreaker;
+import com.hitutor.util.Futures;
+import com.hitutor.util.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 短信网关：在独立线程池上异步调用服务商，带超时和熔断，避免占用 Tomcat 请求线程。
+ */
+@Service
+public class SmsGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmsGateway.class);
+
+    @Autowired
+    private SmsProvider smsProvider;
+
+    @Value("${app.sms.pool-size:8}")
+    private int poolSize;
+
+    @Value("${app.sms.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${app.sms.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${app.sms.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.sms.circuit.open-ms:30000}")
+    private long openMs;
+
+    @Value("${app.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    private ThreadPoolExecutor executor;
+    private CircuitBreaker circuitBreaker;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // 虚拟线程模式下保持 pool-size 作为对短信服务商的并发上限，只替换线程实现
+        ThreadFactory threadFactory = virtualThreadsEnabled && VirtualThreads.isSupported()
+                ? VirtualThreads.newThreadFactory("sms-gateway-virtual-")
+                : new CustomizableThreadFactory("sms-gateway-");
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        circuitBreaker = new CircuitBreaker(failureThreshold, openMs);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<Void> sendVerificationCode(String phone) {
+        return submit(() -> {
+            smsProvider.sendVerificationCode(phone);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> sendCode(String phone, String code) {
+        return submit(() -> {
+            smsProvider.sendCode(phone, code);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> checkVerificationCode(String phone, String code) {
+        return submit(() -> smsProvider.checkVerificationCode(phone, code));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("provider", smsProvider.getName());
+        stats.put("circuitState", circuitBreaker.getState().name());
+        stats.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+        stats.put("circuitRejected", circuitBreaker.getRejected());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        return stats;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RuntimeException("短信服务暂时不可用，请稍后重试"));
+        }
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.onFailure();
+            failed.incrementAndGet();
+            return CompletableFuture.failedFuture(new RuntimeException("短信服务繁忙，请稍后重试"));
+        }
+        return future
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        circuitBreaker.onSuccess();
+                        succeeded.incrementAndGet();
+                        return result;
+                    }
+                    Throwable cause = Futures.unwrap(error);
+                    if (cause instanceof TimeoutException) {
+                        timedOut.incrementAndGet();
+                        circuitBreaker.onFailure();
+                        logger.warn("SMS provider {} timed out after {} ms", smsProvider.getName(), timeoutMs);
+                        throw new CompletionException(new RuntimeException("短信服务响应超时，请稍后重试"));
+                    }
+                    if (cause instanceof IllegalArgumentException) {
+                        // 业务性拒绝说明服务商可用，不计入熔断
+                        circuitBreaker.onSuccess();
+                    } else {
+                        circuitBreaker.onFailure();
+                        failed.incrementAndGet();
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+}
@@ -0,0 +1,12 @@
+package com.hitutor.service;
+
+/**
+ * 短信服务商接口。业务性拒绝（号码非法、频控等）抛出 IllegalArgumentException，
+ * 网络或服务端故障抛出其他 RuntimeException，由 SmsGateway 计入熔断统计。
+ */
+public interface SmsProvider {
+    String getName();
+    void sendVerificationCode(String phone);
+    void sendCode(String phone, String code);
+    boolean checkVerificationCode(String phone, String code);
+}
@@ -0,0 +1,141 @@
+package com.hitutor.service;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 全局单调递增的同步序号，消息、已读水位和收件箱条目每次变更都会打上新序号，
+ * 客户端以最后收到的序号作为增量同步游标。
+ * 预留的序号在写入完成前处于在途状态，调用方写入结束后需调用 release。
+ * 消息按批次整段预留，收件箱条目沿用消息的序号，计数器的写入次数与批次数而不是消息数成正比。
+ */
+@Service
+public class SyncSequenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncSequenceService.class);
+
+    private static final String COUNTERS_COLLECTION = "chat_counters";
+    private static final String SYNC_COUNTER_ID = "chat_sync";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.chat.sync.settle-ms:2000}")
+    private long settleMs;
+
+    @Value("${app.chat.sync.max-in-flight-ms:30000}")
+    private long maxInFlightMs;
+
+    private volatile long lastStaleWarning;
+
+    // 本节点在途的序号区间：首个序号 -> 预留时间
+    private final ConcurrentSkipListMap<Long, Long> inFlight = new ConcurrentSkipListMap<>();
+
+    // 计数器的观测记录 (时间, 值)，按时间递增
+    private final Deque<long[]> observations = new ArrayDeque<>();
+
+    public long next() {
+        return reserve(1);
+    }
+
+    /**
+     * 一次预留 count 个连续序号并返回第一个，批量写入只需一次往返。
+     */
+    public long reserve(int count) {
+        Query query = new Query(Criteria.where("_id").is(SYNC_COUNTER_ID));
+        Document counter = mongoTemplate.findAndModify(query, new Update().inc("seq", (long) count),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Document.class, COUNTERS_COLLECTION);
+        long last = ((Number) counter.get("seq")).longValue();
+        long first = last - count + 1;
+        inFlight.put(first, System.currentTimeMillis());
+        observe(first - 1);
+        return first;
+    }
+
+    public void release(long first) {
+        inFlight.remove(first);
+    }
+
+    /**
+     * 已落定的最大序号，不大于它的变更都已写入，可以安全地作为同步游标。
+     * 取 settle-ms 之前观测到的计数器值（覆盖其他节点的在途写入），
+     * 再以本节点最早的在途序号为上限。在途预留无论多久都不会被越过，慢写入只会推迟同步而不会被跳过；
+     * 超过 max-in-flight-ms 仍未释放时记录告警。
+     */
+    public long settledHighWater() {
+        Document counter = mongoTemplate.findById(SYNC_COUNTER_ID, Document.class, COUNTERS_COLLECTION);
+        long now = System.currentTimeMillis();
+        long highWater = settledObservation(counter != null ? ((Number) counter.get("seq")).longValue() : 0, now);
+
+        Map.Entry<Long, Long> oldest = inFlight.firstEntry();
+        if (oldest != null) {
+            highWater = Math.min(highWater, oldest.getKey() - 1);
+            warnIfStale(oldest.getKey(), now - oldest.getValue(), now);
+        }
+        return highWater;
+    }
+
+    private void warnIfStale(long first, long age, long now) {
+        if (age < maxInFlightMs || now - lastStaleWarning < maxInFlightMs) {
+            return;
+        }
+        lastStaleWarning = now;
+        logger.warn("Sync sequence {} has been in flight for {} ms, delta sync is held below it until released", first, age);
+    }
+
+    private void observe(long value) {
+        long now = System.currentTimeMillis();
+        synchronized (observations) {
+            recordObservation(value, now);
+            trimObservations(now);
+        }
+    }
+
+    private long settledObservation(long current, long now) {
+        synchronized (observations) {
+            recordObservation(current, now);
+            trimObservations(now);
+            long[] first = observations.peekFirst();
+            return first[0] + settleMs <= now ? first[1] : 0;
+        }
+    }
+
+    // 只保留最后一条已落定的观测和之后尚未落定的观测
+    private void trimObservations(long now) {
+        while (observations.size() > 1) {
+            long[] first = observations.pollFirst();
+            if (observations.peekFirst()[0] + settleMs > now) {
+                observations.addFirst(first);
+                return;
+            }
+        }
+    }
+
+    private void recordObservation(long value, long time) {
+        long[] last = observations.peekLast();
+        if (last != null && last[1] >= value) {
+            return;
+        }
+        // 同一毫秒内只保留最新值，避免高频写入时记录无限增长
+        if (last != null && last[0] == time) {
+            last[1] = value;
+            return;
+        }
+        observations.addLast(new long[]{time, value});
+    }
+}
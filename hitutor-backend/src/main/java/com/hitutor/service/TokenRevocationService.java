@@ -0,0 +1,149 @@
+package com.hitutor.service;
+
+import com.hitutor.util.BloomFilter;
+import com.hitutor.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final String TOKEN_PREFIX = "t:";
+    private static final String USER_PREFIX = "u:";
+
+    @Autowired
+    private TokenRevocationStore revocationStore;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${app.jwt.refresh-token-expiration}")
+    private Long refreshTokenExpiration;
+
+    @Value("${app.token-revocation.bloom-expected-insertions:100000}")
+    private int expectedInsertions;
+
+    @Value("${app.token-revocation.bloom-false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    private final Object filterLock = new Object();
+    private volatile BloomFilter bloomFilter;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong bloomHits = new AtomicLong();
+    private final AtomicLong revokedHits = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        bloomFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        rebuildBloomFilter();
+    }
+
+    /**
+     * 布隆过滤器未命中时直接放行，只有命中时才查询撤销存储做精确判断。
+     */
+    public boolean isRevoked(Claims claims) {
+        checks.incrementAndGet();
+        BloomFilter filter = bloomFilter;
+
+        String tokenId = claims.getId();
+        if (tokenId != null && filter.mightContain(TOKEN_PREFIX + tokenId)) {
+            bloomHits.incrementAndGet();
+            if (revocationStore.isTokenRevoked(tokenId)) {
+                revokedHits.incrementAndGet();
+                return true;
+            }
+        }
+
+        String userId = claims.getSubject();
+        if (userId != null && filter.mightContain(USER_PREFIX + userId)) {
+            bloomHits.incrementAndGet();
+            Long revokedAt = revocationStore.getUserRevokedAt(userId);
+            Date issuedAt = claims.getIssuedAt();
+            // JWT 的 iat 只精确到秒，按秒比较：撤销所在秒内签发的令牌（如登出全部后立即重新登录）仍然有效
+            if (revokedAt != null && (issuedAt == null || toSeconds(issuedAt.getTime()) < toSeconds(revokedAt))) {
+                revokedHits.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean revokeToken(String token) {
+        Claims claims;
+        try {
+            claims = jwtUtil.getClaimsFromToken(token);
+        } catch (Exception e) {
+            return false;
+        }
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return false;
+        }
+        revocationStore.revokeToken(claims.getId(), claims.getExpiration().getTime());
+        synchronized (filterLock) {
+            bloomFilter.put(TOKEN_PREFIX + claims.getId());
+        }
+        return true;
+    }
+
+    /**
+     * 撤销该用户在此刻所在秒之前签发的全部令牌；撤销时间截断到秒，与 iat 的精度一致。
+     */
+    public void revokeUser(String userId) {
+        revocationStore.revokeUser(userId, TimeUnit.SECONDS.toMillis(toSeconds(System.currentTimeMillis())));
+        synchronized (filterLock) {
+            bloomFilter.put(USER_PREFIX + userId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.token-revocation.bloom-refresh-ms:30000}",
+            initialDelayString = "${app.token-revocation.bloom-refresh-ms:30000}")
+    public void rebuildBloomFilter() {
+        try {
+            revocationStore.purgeExpired(refreshTokenExpiration);
+            synchronized (filterLock) {
+                Map<String, Long> tokens = revocationStore.getRevokedTokens();
+                Map<String, Long> users = revocationStore.getRevokedUsers();
+                int size = Math.max(expectedInsertions, (tokens.size() + users.size()) * 2);
+                BloomFilter rebuilt = new BloomFilter(size, falsePositiveRate);
+                tokens.keySet().forEach(id -> rebuilt.put(TOKEN_PREFIX + id));
+                users.keySet().forEach(id -> rebuilt.put(USER_PREFIX + id));
+                bloomFilter = rebuilt;
+            }
+            rebuilds.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("Failed to rebuild token revocation filter: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        BloomFilter filter = bloomFilter;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("checks", checks.get());
+        stats.put("bloomHits", bloomHits.get());
+        stats.put("revokedHits", revokedHits.get());
+        stats.put("rebuilds", rebuilds.get());
+        stats.put("bloomBits", filter.bitSize());
+        stats.put("bloomHashes", filter.hashCount());
+        return stats;
+    }
+
+    private static long toSeconds(long millis) {
+        return TimeUnit.MILLISECONDS.toSeconds(millis);
+    }
+}
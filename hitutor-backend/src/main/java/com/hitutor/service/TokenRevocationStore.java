@@ -0,0 +1,13 @@
+package com.hitutor.service;
+
+import java.util.Map;
+
+public interface TokenRevocationStore {
+    void revokeToken(String tokenId, long expiresAtMillis);
+    boolean isTokenRevoked(String tokenId);
+    void revokeUser(String userId, long revokedAtMillis);
+    Long getUserRevokedAt(String userId);
+    Map<String, Long> getRevokedTokens();
+    Map<String, Long> getRevokedUsers();
+    void purgeExpired(long userRetentionMillis);
+}
@@ -0,0 +1,238 @@
+package com.hitutor.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按用户缓存未读通知数（个人通知 + 广播通知），轮询未读数时直接读取计数。
+ * 个人通知的创建、已读、删除按增量调整计数；广播的已读水位变化后失效该用户的计数。
+ * 新广播只推进全局广播水位，各用户下次读取时按条目记录的水位补上新增的广播数，不会同时重新统计所有用户。
+ * 计数变更在调用方事务提交后才生效，回滚的写入不会影响计数；增量调整与加载之间的竞争由定时对账纠正，
+ * 多节点共用存储时每轮只有一个节点对账。
+ */
+@Service
+public class UnreadCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    private static final String PERSONAL_SQL =
+            "SELECT user_id, COUNT(*) FROM notifications WHERE is_read = 0 AND user_id IN (%s) GROUP BY user_id";
+
+    // 只统计注册之后、已读水位之上的广播，与通知列表的可见范围一致
+    private static final String BROADCAST_SQL =
+            "SELECT u.id, COUNT(b.id) FROM sys_user u " +
+            "LEFT JOIN broadcast_read_watermarks w ON w.user_id = u.id " +
+            "JOIN broadcast_notifications b ON b.id > COALESCE(w.last_read_id, 0) AND b.create_time >= u.create_time " +
+            "WHERE u.id IN (%s) GROUP BY u.id";
+
+    @Autowired
+    private UnreadCounterStore counterStore;
+
+    private static final String LATEST_BROADCAST_SQL = "SELECT COALESCE(MAX(id), 0) FROM broadcast_notifications";
+
+    private static final String BROADCASTS_BETWEEN_SQL =
+            "SELECT COUNT(*) FROM broadcast_notifications WHERE id > ? AND id <= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.notification.unread-counter.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    @Value("${app.notification.unread-counter.reconcile-interval-ms:300000}")
+    private long reconcileIntervalMs;
+
+    // 当前广播水位下各旧水位的新增广播数，同一旧水位的用户共用一次统计；水位推进后整体替换
+    private volatile BroadcastDeltas broadcastDeltas = new BroadcastDeltas(-1);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong increments = new AtomicLong();
+    private final AtomicLong decrements = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong reconciled = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+    private final AtomicLong failedReconciles = new AtomicLong();
+    private final AtomicLong broadcastAdvances = new AtomicLong();
+    private final AtomicLong skippedReconciles = new AtomicLong();
+
+    public int getUnreadCount(String userId) {
+        UnreadCounterStore.Count cached = counterStore.get(userId);
+        if (cached != null) {
+            long mark = currentBroadcastMark();
+            if (cached.getBroadcastMark() >= mark) {
+                hits.incrementAndGet();
+                return (int) cached.getCount();
+            }
+            long added = broadcastsBetween(cached.getBroadcastMark(), mark);
+            Long advanced = counterStore.advanceIfPresent(userId, cached.getBroadcastMark(), mark, added);
+            if (advanced != null) {
+                broadcastAdvances.incrementAndGet();
+                return advanced.intValue();
+            }
+            // 条目已被并发推进或失效，重新统计
+        }
+        loads.incrementAndGet();
+        long count = countFromDatabase(Collections.singletonList(userId)).getOrDefault(userId, 0L);
+        counterStore.put(userId, count, currentBroadcastMark());
+        return (int) count;
+    }
+
+    public void increment(String userId) {
+        afterCommit(() -> {
+            increments.incrementAndGet();
+            counterStore.addIfPresent(userId, 1);
+        });
+    }
+
+    public void decrement(String userId) {
+        afterCommit(() -> {
+            decrements.incrementAndGet();
+            counterStore.addIfPresent(userId, -1);
+        });
+    }
+
+    public void reset(String userId) {
+        afterCommit(() -> counterStore.put(userId, 0, currentBroadcastMark()));
+    }
+
+    public void invalidate(String userId) {
+        afterCommit(() -> {
+            invalidations.incrementAndGet();
+            counterStore.remove(userId);
+        });
+    }
+
+    /**
+     * 新广播提交后推进全局广播水位；已缓存的计数在各用户下次读取时按需补上。
+     */
+    public void onBroadcastCreated(long broadcastId) {
+        afterCommit(() -> counterStore.advanceBroadcastMark(broadcastId));
+    }
+
+    /**
+     * 分批按 SQL 重新统计已缓存用户的未读数，覆盖偏离的计数。
+     */
+    @Scheduled(fixedDelayString = "${app.notification.unread-counter.reconcile-interval-ms:300000}")
+    public int reconcile() {
+        // 租约时长等于对账间隔，同一轮中其他节点取不到租约直接跳过
+        if (!counterStore.tryAcquireReconcileLease(reconcileIntervalMs)) {
+            skippedReconciles.incrementAndGet();
+            return 0;
+        }
+        List<String> userIds = new ArrayList<>(counterStore.userIds());
+        int checked = 0;
+        for (int from = 0; from < userIds.size(); from += reconcileBatchSize) {
+            List<String> batch = userIds.subList(from, Math.min(from + reconcileBatchSize, userIds.size()));
+            try {
+                Map<String, Long> counts = countFromDatabase(batch);
+                long mark = currentBroadcastMark();
+                for (String userId : batch) {
+                    long count = counts.getOrDefault(userId, 0L);
+                    UnreadCounterStore.Count cached = counterStore.get(userId);
+                    if (cached == null) {
+                        continue;
+                    }
+                    if (cached.getCount() != count || cached.getBroadcastMark() != mark) {
+                        if (cached.getBroadcastMark() == mark) {
+                            corrections.incrementAndGet();
+                        }
+                        counterStore.put(userId, count, mark);
+                    }
+                    checked++;
+                }
+            } catch (Exception e) {
+                failedReconciles.incrementAndGet();
+                logger.warn("Failed to reconcile unread counters for {} users: {}", batch.size(), e.getMessage());
+            }
+        }
+        reconciled.addAndGet(checked);
+        return checked;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("store", counterStore.getClass().getSimpleName());
+        stats.put("cachedUsers", counterStore.size());
+        stats.put("hits", hits.get());
+        stats.put("loads", loads.get());
+        stats.put("increments", increments.get());
+        stats.put("decrements", decrements.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("reconciled", reconciled.get());
+        stats.put("corrections", corrections.get());
+        stats.put("failedReconciles", failedReconciles.get());
+        stats.put("broadcastAdvances", broadcastAdvances.get());
+        stats.put("skippedReconciles", skippedReconciles.get());
+        return stats;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+
+    private long currentBroadcastMark() {
+        Long mark = counterStore.getBroadcastMark();
+        if (mark == null) {
+            mark = jdbcTemplate.queryForObject(LATEST_BROADCAST_SQL, Long.class);
+            counterStore.advanceBroadcastMark(mark);
+        }
+        return mark;
+    }
+
+    private long broadcastsBetween(long fromMark, long toMark) {
+        BroadcastDeltas deltas = broadcastDeltas;
+        if (deltas.toMark != toMark) {
+            deltas = new BroadcastDeltas(toMark);
+            broadcastDeltas = deltas;
+        }
+        return deltas.byFromMark.computeIfAbsent(fromMark,
+                key -> jdbcTemplate.queryForObject(BROADCASTS_BETWEEN_SQL, Long.class, key, toMark));
+    }
+
+    private Map<String, Long> countFromDatabase(List<String> userIds) {
+        Map<String, Long> counts = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(userIds.size(), "?"));
+        Object[] args = userIds.toArray();
+        jdbcTemplate.query(String.format(PERSONAL_SQL, placeholders), rs -> {
+            counts.merge(rs.getString(1), rs.getLong(2), Long::sum);
+        }, args);
+        jdbcTemplate.query(String.format(BROADCAST_SQL, placeholders), rs -> {
+            counts.merge(rs.getString(1), rs.getLong(2), Long::sum);
+        }, args);
+        return counts;
+    }
+
+    private static class BroadcastDeltas {
+        private final long toMark;
+        private final Map<Long, Long> byFromMark = new ConcurrentHashMap<>();
+
+        BroadcastDeltas(long toMark) {
+            this.toMark = toMark;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.hitutor.service;
+
+import java.util.Set;
+
+/**
+ * 未读数缓存：每个用户的计数带有计算时的广播水位（当时最大的广播 ID），条目按 TTL 过期、按容量淘汰。
+ */
+public interface UnreadCounterStore {
+    Count get(String userId);
+    void put(String userId, long count, long broadcastMark);
+    void addIfPresent(String userId, long delta);
+    // 条目的广播水位仍为 fromMark 时加上新增广播数并推进到 toMark，返回新计数；条目不存在或已被推进时返回 null
+    Long advanceIfPresent(String userId, long fromMark, long toMark, long delta);
+    void remove(String userId);
+    Long getBroadcastMark();
+    void advanceBroadcastMark(long broadcastId);
+    // 多节点共用存储时只有取得租约的节点执行对账
+    boolean tryAcquireReconcileLease(long leaseMillis);
+    Set<String> userIds();
+    long size();
+
+    final class Count {
+        private final long count;
+        private final long broadcastMark;
+
+        public Count(long count, long broadcastMark) {
+            this.count = count;
+            this.broadcastMark = broadcastMark;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getBroadcastMark() {
+            return broadcastMark;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.hitutor.service;
+
+/**
+ * 服务端验证码存储，只保存验证码摘要；校验成功或失败次数用尽后即失效。
+ */
+public interface VerificationCodeStore {
+    void save(String phone, String codeHash, long ttlMillis);
+    boolean verify(String phone, String codeHash, int maxAttempts);
+    void invalidate(String phone);
+}
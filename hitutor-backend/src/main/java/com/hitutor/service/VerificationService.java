@@ -1,6 +1,9 @@
 package com.hitutor.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface VerificationService {
     void sendVerificationCode(String phone);
+    CompletableFuture<Void> sendVerificationCodeAsync(String phone);
     boolean verifyCode(String phone, String code);
-}
\ No newline at end of file
+}
@@ -0,0 +1,131 @@
+package com.hitutor.service.impl;
+
+import com.aliyuncs.CommonRequest;
+import com.aliyuncs.CommonResponse;
+import com.aliyuncs.DefaultAcsClient;
+import com.aliyuncs.IAcsClient;
+import com.aliyuncs.exceptions.ClientException;
+import com.aliyuncs.exceptions.ServerException;
+import com.aliyuncs.http.HttpClientConfig;
+import com.aliyuncs.http.MethodType;
+import com.aliyuncs.profile.DefaultProfile;
+import com.hitutor.service.SmsProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@ConditionalOnProperty(name = "app.sms.provider", havingValue = "aliyun", matchIfMissing = true)
+public class AliyunSmsProvider implements SmsProvider {
+
+    @Value("${aliyun.access-key-id}")
+    private String accessKeyId;
+
+    @Value("${aliyun.access-key-secret}")
+    private String accessKeySecret;
+
+    @Value("${aliyun.sms.sign-name}")
+    private String signName;
+
+    @Value("${aliyun.sms.template-code}")
+    private String templateCode;
+
+    @Value("${app.sms.aliyun.max-connections:32}")
+    private int maxConnections;
+
+    @Value("${app.sms.aliyun.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.sms.aliyun.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    private static final int CODE_EXPIRE_MIN = 5;
+
+    private IAcsClient client;
+
+    @PostConstruct
+    public void init() {
+        HttpClientConfig clientConfig = HttpClientConfig.getDefault();
+        clientConfig.setMaxRequestsPerHost(maxConnections);
+        clientConfig.setMaxIdleConnections(maxConnections);
+        clientConfig.setConnectionTimeoutMillis(connectTimeoutMs);
+        clientConfig.setReadTimeoutMillis(readTimeoutMs);
+
+        DefaultProfile profile = DefaultProfile.getProfile("cn-hangzhou", accessKeyId, accessKeySecret);
+        profile.setHttpClientConfig(clientConfig);
+        client = new DefaultAcsClient(profile);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "aliyun";
+    }
+
+    @Override
+    public void sendVerificationCode(String phone) {
+        sendSmsVerifyCode(phone, "##code##");
+    }
+
+    @Override
+    public void sendCode(String phone, String code) {
+        sendSmsVerifyCode(phone, code);
+    }
+
+    @Override
+    public boolean checkVerificationCode(String phone, String code) {
+        CommonRequest request = new CommonRequest();
+        request.setSysMethod(MethodType.POST);
+        request.setSysDomain("dypnsapi.aliyuncs.com");
+        request.setSysVersion("2017-05-25");
+        request.setSysAction("CheckSmsVerifyCode");
+        request.putQueryParameter("PhoneNumber", phone);
+        request.putQueryParameter("VerifyCode", code);
+
+        try {
+            CommonResponse response = client.getCommonResponse(request);
+            String data = response.getData();
+            return data != null && data.contains("\"VerifyResult\":\"PASS\"");
+        } catch (ServerException e) {
+            throw new RuntimeException("验证码校验失败: " + e.getErrCode() + " - " + e.getErrMsg());
+        } catch (ClientException e) {
+            throw new RuntimeException("验证码校验失败: " + e.getErrCode() + " - " + e.getErrMsg());
+        }
+    }
+
+    private void sendSmsVerifyCode(String phone, String code) {
+        String templateParam = String.format("{\"code\":\"%s\",\"min\":\"%d\"}", code, CODE_EXPIRE_MIN);
+
+        CommonRequest request = new CommonRequest();
+        request.setSysMethod(MethodType.POST);
+        request.setSysDomain("dypnsapi.aliyuncs.com");
+        request.setSysVersion("2017-05-25");
+        request.setSysAction("SendSmsVerifyCode");
+        request.putQueryParameter("PhoneNumber", phone);
+        request.putQueryParameter("SignName", signName);
+        request.putQueryParameter("TemplateCode", templateCode);
+        request.putQueryParameter("TemplateParam", templateParam);
+        request.putQueryParameter("CodeLength", "6"); // 设置验证码长度为6位
+
+        String data;
+        try {
+            CommonResponse response = client.getCommonResponse(request);
+            data = response.getData();
+        } catch (ServerException e) {
+            throw new RuntimeException("发送验证码失败: " + e.getErrCode() + " - " + e.getErrMsg());
+        } catch (ClientException e) {
+            throw new RuntimeException("发送验证码失败: " + e.getErrCode() + " - " + e.getErrMsg());
+        }
+        if (data == null || !data.contains("\"Code\":\"OK\"")) {
+            throw new IllegalArgumentException("发送验证码失败: " + data);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatMessage;
+import com.hitutor.document.ChatMessageArchive;
+import com.hitutor.document.ChatMessageBucket;
+import com.hitutor.service.ChatMessageStore;
+import com.hitutor.util.ChatArchiveCodec;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 按会话分桶存储：同一会话同一天的消息写入同一个桶文档（超过上限另开新桶），
+ * 近期历史只需读取少量桶；超过归档期限的桶由 ChatBucketArchiver 压缩迁入 chat_message_archive，
+ * 向前翻页读完热数据后再读取归档。
+ */
+@Service
+@ConditionalOnProperty(name = "app.chat.storage.mode", havingValue = "bucket")
+public class BucketChatMessageStore implements ChatMessageStore {
+
+    private static final Comparator<ChatMessage> MESSAGE_ORDER =
+            Comparator.comparing(ChatMessage::getCreateTime).thenComparing(ChatMessage::getId);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.chat.storage.bucket-max-messages:500}")
+    private int bucketMaxMessages;
+
+    @Value("${app.chat.storage.scan-batch:8}")
+    private int scanBatch;
+
+    private final AtomicLong bucketWrites = new AtomicLong();
+    private final AtomicLong messagesWritten = new AtomicLong();
+    private final AtomicLong hotBucketReads = new AtomicLong();
+    private final AtomicLong archiveBucketReads = new AtomicLong();
+
+    /**
+     * 同一批中按 (会话, 日期) 分组，每组一次 $push $each 的 upsert，全部放进一次无序 bulk 写入。
+     * 过滤条件里的 count < 上限让已满的桶不再匹配，upsert 自动开新桶；整组追加，上限为软上限。
+     */
+    @Override
+    public void insertAll(List<ChatMessage> messages) {
+        Map<String, List<ChatMessage>> groups = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            groups.computeIfAbsent(message.getConversationId() + "|" + dayOf(message.getCreateTime()),
+                    key -> new ArrayList<>()).add(message);
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessageBucket.class);
+        for (List<ChatMessage> group : groups.values()) {
+            ChatMessage first = group.get(0);
+            bulk.upsert(openBucketQuery(first), appendUpdate(group));
+        }
+        bulk.execute();
+        bucketWrites.addAndGet(groups.size());
+        messagesWritten.addAndGet(messages.size());
+    }
+
+    @Override
+    public void save(ChatMessage message) {
+        Query existing = new Query(Criteria.where("conversationId").is(message.getConversationId())
+                .and("messages.messageId").is(message.getId()));
+        if (mongoTemplate.exists(existing, ChatMessageBucket.class)) {
+            return;
+        }
+        mongoTemplate.upsert(openBucketQuery(message), appendUpdate(Collections.singletonList(message)),
+                ChatMessageBucket.class);
+        bucketWrites.incrementAndGet();
+        messagesWritten.incrementAndGet();
+    }
+
+    @Override
+    public long count(String conversationId) {
+        long total = 0;
+        for (BucketMeta meta : listMeta(conversationId)) {
+            total += meta.count;
+        }
+        return total;
+    }
+
+    /**
+     * 先只取各桶的条数定位 offset 所在的桶，再加载覆盖该页的桶。
+     */
+    @Override
+    public List<ChatMessage> findPage(String conversationId, long offset, int limit) {
+        List<ChatMessage> collected = new ArrayList<>();
+        long position = 0;
+        long skip = offset;
+        for (BucketMeta meta : listMeta(conversationId)) {
+            if (position + meta.count <= offset) {
+                position += meta.count;
+                continue;
+            }
+            List<ChatMessage> messages = load(conversationId, meta);
+            if (collected.isEmpty()) {
+                skip = offset - position;
+            }
+            collected.addAll(messages);
+            position += meta.count;
+            if (collected.size() - skip >= limit) {
+                break;
+            }
+        }
+        if (skip >= collected.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(collected.subList((int) skip, (int) Math.min(collected.size(), skip + limit)));
+    }
+
+    @Override
+    public List<ChatMessage> findLatest(String conversationId, int limit) {
+        return scan(conversationId, null, true, message -> true, limit);
+    }
+
+    @Override
+    public List<ChatMessage> findBefore(String conversationId, ChatMessage anchor, int limit) {
+        return scan(conversationId, Criteria.where("startTime").lte(anchor.getCreateTime()), true,
+                message -> MESSAGE_ORDER.compare(message, anchor) < 0, limit);
+    }
+
+    @Override
+    public List<ChatMessage> findAfter(String conversationId, ChatMessage anchor, int limit) {
+        return scan(conversationId, Criteria.where("endTime").gte(anchor.getCreateTime()), false,
+                message -> MESSAGE_ORDER.compare(message, anchor) > 0, limit);
+    }
+
+    /**
+     * ObjectId 形式的消息 ID 可由其时间戳推出所在日期，直接定位到当天的桶；找不到时再按会话查找。
+     */
+    @Override
+    public ChatMessage findById(String conversationId, String messageId) {
+        String day = null;
+        if (ObjectId.isValid(messageId)) {
+            day = dayOf(LocalDateTime.ofInstant(new ObjectId(messageId).getDate().toInstant(), ZoneId.systemDefault()));
+        }
+        Criteria criteria = Criteria.where("conversationId").is(conversationId).and("messages.messageId").is(messageId);
+        if (day != null) {
+            ChatMessage found = findInHot(new Query(Criteria.where("conversationId").is(conversationId)
+                    .and("day").is(day).and("messages.messageId").is(messageId)), conversationId, messageId);
+            if (found != null) {
+                return found;
+            }
+        }
+        ChatMessage found = findInHot(new Query(criteria), conversationId, messageId);
+        if (found != null || day == null) {
+            return found;
+        }
+        Query archiveQuery = new Query(Criteria.where("conversationId").is(conversationId).and("day").is(day));
+        for (ChatMessageArchive archive : mongoTemplate.find(archiveQuery, ChatMessageArchive.class)) {
+            archiveBucketReads.incrementAndGet();
+            for (ChatMessageBucket.Entry entry : ChatArchiveCodec.decode(archive.getPayload())) {
+                if (messageId.equals(entry.getMessageId())) {
+                    return entry.toMessage(conversationId);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 结束时间早于续传位置的桶整桶跳过，之后逐桶加载，内存占用不超过单个桶的大小。
+     */
+    @Override
+    public void forEach(String conversationId, ChatMessage after, Consumer<ChatMessage> consumer) {
+        for (BucketMeta meta : listMeta(conversationId)) {
+            if (after != null && meta.endTime != null && meta.endTime.isBefore(after.getCreateTime())) {
+                continue;
+            }
+            for (ChatMessage message : load(conversationId, meta)) {
+                if (after == null || MESSAGE_ORDER.compare(message, after) > 0) {
+                    consumer.accept(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * 用 arrayFilters 在各桶内批量置已读。返回值与文档模式一致为被置已读的消息数，
+     * 更新前先聚合统计未读条目数（updateMulti 只能返回被修改的桶数）。归档桶不再更新已读标记。
+     */
+    @Override
+    public long markRead(String conversationId, String receiverId) {
+        Criteria unreadBuckets = Criteria.where("conversationId").is(conversationId)
+                .and("messages").elemMatch(Criteria.where("receiver_id").is(receiverId).and("is_read").is(false));
+        TypedAggregation<ChatMessageBucket> countUnread = Aggregation.newAggregation(ChatMessageBucket.class,
+                Aggregation.match(unreadBuckets),
+                Aggregation.unwind("messages"),
+                Aggregation.match(Criteria.where("messages.receiverId").is(receiverId).and("messages.isRead").is(false)),
+                Aggregation.count().as("unread"));
+        Document counted = mongoTemplate.aggregate(countUnread, Document.class).getUniqueMappedResult();
+        long unread = counted != null ? ((Number) counted.get("unread")).longValue() : 0;
+        if (unread == 0) {
+            return 0;
+        }
+
+        Update update = new Update().set("messages.$[m].is_read", true)
+                .inc("version", 1)
+                .filterArray(Criteria.where("m.receiver_id").is(receiverId).and("m.is_read").is(false));
+        mongoTemplate.updateMulti(new Query(unreadBuckets), update, ChatMessageBucket.class);
+        return unread;
+    }
+
+    @Override
+    public List<ChatMessage> findChangedSince(String userId, long cursor, long highWater, int limit) {
+        TypedAggregation<ChatMessageBucket> aggregation = Aggregation.newAggregation(ChatMessageBucket.class,
+                Aggregation.match(Criteria.where("participants").is(userId).and("maxSeq").gt(cursor)),
+                Aggregation.unwind("messages"),
+                Aggregation.match(Criteria.where("messages.seq").gt(cursor).lte(highWater)),
+                Aggregation.sort(Sort.by(Sort.Order.asc("messages.seq"))),
+                Aggregation.limit(limit));
+        List<ChatMessage> messages = new ArrayList<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Document.class).getMappedResults()) {
+            ChatMessageBucket.Entry entry = mongoTemplate.getConverter()
+                    .read(ChatMessageBucket.Entry.class, (Document) row.get("messages"));
+            messages.add(entry.toMessage(row.getString("conversation_id")));
+        }
+        return messages;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", "bucket");
+        stats.put("bucketMaxMessages", bucketMaxMessages);
+        stats.put("bucketWrites", bucketWrites.get());
+        stats.put("messagesWritten", messagesWritten.get());
+        stats.put("hotBucketReads", hotBucketReads.get());
+        stats.put("archiveBucketReads", archiveBucketReads.get());
+        return stats;
+    }
+
+    /**
+     * 按桶的时间顺序依次读取，凑够 limit 条后停止。向前（降序）先读热数据再读归档，向后则相反。
+     */
+    private List<ChatMessage> scan(String conversationId, Criteria timeBound, boolean descending,
+                                   Predicate<ChatMessage> filter, int limit) {
+        List<ChatMessage> collected = new ArrayList<>();
+        // 归档与删除热桶之间的窗口内同一批消息可能同时存在于两处，按消息 ID 去重
+        Set<String> seen = new HashSet<>();
+        List<Class<?>> sources = descending
+                ? Arrays.asList(ChatMessageBucket.class, ChatMessageArchive.class)
+                : Arrays.asList(ChatMessageArchive.class, ChatMessageBucket.class);
+        Sort sort = descending ? Sort.by(Sort.Order.desc("startTime")) : Sort.by(Sort.Order.asc("startTime"));
+
+        for (Class<?> source : sources) {
+            int skip = 0;
+            while (collected.size() < limit) {
+                Criteria criteria = Criteria.where("conversationId").is(conversationId);
+                Query query = timeBound != null ? new Query(criteria).addCriteria(timeBound) : new Query(criteria);
+                query.with(sort).skip(skip).limit(scanBatch);
+                List<?> buckets = mongoTemplate.find(query, source);
+                for (Object bucket : buckets) {
+                    for (ChatMessage message : messagesOf(conversationId, bucket)) {
+                        if (filter.test(message) && seen.add(message.getId())) {
+                            collected.add(message);
+                        }
+                    }
+                    if (collected.size() >= limit) {
+                        break;
+                    }
+                }
+                if (buckets.size() < scanBatch) {
+                    break;
+                }
+                skip += scanBatch;
+            }
+            if (collected.size() >= limit) {
+                break;
+            }
+        }
+
+        collected.sort(MESSAGE_ORDER);
+        if (collected.size() <= limit) {
+            return collected;
+        }
+        return descending
+                ? new ArrayList<>(collected.subList(collected.size() - limit, collected.size()))
+                : new ArrayList<>(collected.subList(0, limit));
+    }
+
+    // 归档后删除热桶失败时同一个桶会同时存在于两处，以热桶为准，跳过同 ID 的归档
+    private List<BucketMeta> listMeta(String conversationId) {
+        List<BucketMeta> archives = new ArrayList<>();
+        List<BucketMeta> hotBuckets = new ArrayList<>();
+        Set<String> hotIds = new HashSet<>();
+        for (Class<?> source : Arrays.asList(ChatMessageArchive.class, ChatMessageBucket.class)) {
+            Query query = new Query(Criteria.where("conversationId").is(conversationId))
+                    .with(Sort.by(Sort.Order.asc("startTime")));
+            query.fields().include("id", "count", "startTime", "endTime");
+            for (Object bucket : mongoTemplate.find(query, source)) {
+                if (bucket instanceof ChatMessageBucket) {
+                    ChatMessageBucket hot = (ChatMessageBucket) bucket;
+                    hotBuckets.add(new BucketMeta(hot.getId(), false, hot.getCount() != null ? hot.getCount() : 0,
+                            hot.getEndTime()));
+                    hotIds.add(hot.getId());
+                } else {
+                    ChatMessageArchive archive = (ChatMessageArchive) bucket;
+                    archives.add(new BucketMeta(archive.getId(), true, archive.getCount() != null ? archive.getCount() : 0,
+                            archive.getEndTime()));
+                }
+            }
+        }
+        List<BucketMeta> metas = new ArrayList<>(archives.size() + hotBuckets.size());
+        for (BucketMeta meta : archives) {
+            if (!hotIds.contains(meta.id)) {
+                metas.add(meta);
+            }
+        }
+        metas.addAll(hotBuckets);
+        return metas;
+    }
+
+    private List<ChatMessage> load(String conversationId, BucketMeta meta) {
+        Object bucket = meta.archived
+                ? mongoTemplate.findById(meta.id, ChatMessageArchive.class)
+                : mongoTemplate.findById(meta.id, ChatMessageBucket.class);
+        return bucket != null ? messagesOf(conversationId, bucket) : new ArrayList<>();
+    }
+
+    private List<ChatMessage> messagesOf(String conversationId, Object bucket) {
+        List<ChatMessageBucket.Entry> entries;
+        if (bucket instanceof ChatMessageArchive) {
+            archiveBucketReads.incrementAndGet();
+            entries = ChatArchiveCodec.decode(((ChatMessageArchive) bucket).getPayload());
+        } else {
+            hotBucketReads.incrementAndGet();
+            entries = ((ChatMessageBucket) bucket).getMessages();
+        }
+        List<ChatMessage> messages = new ArrayList<>();
+        if (entries != null) {
+            for (ChatMessageBucket.Entry entry : entries) {
+                messages.add(entry.toMessage(conversationId));
+            }
+        }
+        messages.sort(MESSAGE_ORDER);
+        return messages;
+    }
+
+    private ChatMessage findInHot(Query query, String conversationId, String messageId) {
+        ChatMessageBucket bucket = mongoTemplate.findOne(query, ChatMessageBucket.class);
+        if (bucket == null || bucket.getMessages() == null) {
+            return null;
+        }
+        hotBucketReads.incrementAndGet();
+        for (ChatMessageBucket.Entry entry : bucket.getMessages()) {
+            if (messageId.equals(entry.getMessageId())) {
+                return entry.toMessage(conversationId);
+            }
+        }
+        return null;
+    }
+
+    private Query openBucketQuery(ChatMessage message) {
+        return new Query(Criteria.where("conversationId").is(message.getConversationId())
+                .and("day").is(dayOf(message.getCreateTime()))
+                .and("count").lt(bucketMaxMessages));
+    }
+
+    private Update appendUpdate(List<ChatMessage> group) {
+        List<ChatMessageBucket.Entry> entries = new ArrayList<>(group.size());
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        long maxSeq = 0;
+        for (ChatMessage message : group) {
+            entries.add(ChatMessageBucket.Entry.of(message));
+            if (start == null || message.getCreateTime().isBefore(start)) {
+                start = message.getCreateTime();
+            }
+            if (end == null || message.getCreateTime().isAfter(end)) {
+                end = message.getCreateTime();
+            }
+            if (message.getSeq() != null) {
+                maxSeq = Math.max(maxSeq, message.getSeq());
+            }
+        }
+        ChatMessage first = group.get(0);
+        List<String> participants = new ArrayList<>(Arrays.asList(first.getSenderId(), first.getReceiverId()));
+        Collections.sort(participants);
+        return new Update()
+                .push("messages").each(entries.toArray())
+                .inc("count", group.size())
+                .min("startTime", start)
+                .max("endTime", end)
+                .max("maxSeq", maxSeq)
+                .inc("version", 1)
+                .setOnInsert("participants", participants);
+    }
+
+    private static String dayOf(LocalDateTime time) {
+        LocalDate day = time.toLocalDate();
+        return day.toString();
+    }
+
+    private static class BucketMeta {
+        private final String id;
+        private final boolean archived;
+        private final int count;
+        private final LocalDateTime endTime;
+
+        BucketMeta(String id, boolean archived, int count, LocalDateTime endTime) {
+            this.id = id;
+            this.archived = archived;
+            this.count = count;
+            this.endTime = endTime;
+        }
+    }
+}
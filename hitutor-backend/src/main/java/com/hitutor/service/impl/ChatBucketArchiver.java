@@ -0,0 +1,151 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatMessageArchive;
+import com.hitutor.document.ChatMessageBucket;
+import com.hitutor.util.ChatArchiveCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 冷热分层：把最后一条消息早于 archive-after-days 的桶压缩写入归档集合后删除原桶。
+ * 各节点都会运行定时任务，归档前先用 findAndModify 认领桶（带租约），同一时刻只有一个节点处理同一个桶。
+ * 先写归档再删桶，删桶时校验版本号，归档期间桶被追加或置已读则撤回归档副本，下一轮重新归档。
+ */
+@Service
+@ConditionalOnProperty(name = "app.chat.storage.mode", havingValue = "bucket")
+public class ChatBucketArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatBucketArchiver.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.chat.storage.archive-after-days:30}")
+    private int archiveAfterDays;
+
+    @Value("${app.chat.storage.archive-batch-size:200}")
+    private int archiveBatchSize;
+
+    @Value("${app.chat.storage.archive-lease-ms:600000}")
+    private long archiveLeaseMs;
+
+    private final String ownerId = UUID.randomUUID().toString();
+
+    private final AtomicLong archivedBuckets = new AtomicLong();
+    private final AtomicLong archivedMessages = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong failedBuckets = new AtomicLong();
+    private final AtomicLong skippedClaims = new AtomicLong();
+    private final AtomicLong rolledBack = new AtomicLong();
+
+    @Scheduled(fixedDelayString = "${app.chat.storage.archive-interval-ms:3600000}")
+    public int archiveColdBuckets() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        Query query = new Query(Criteria.where("endTime").lt(cutoff))
+                .with(Sort.by(Sort.Order.asc("endTime")))
+                .limit(archiveBatchSize);
+        query.fields().include("id");
+        List<ChatMessageBucket> candidates = mongoTemplate.find(query, ChatMessageBucket.class);
+        int archived = 0;
+        for (ChatMessageBucket candidate : candidates) {
+            try {
+                ChatMessageBucket bucket = claim(candidate.getId(), cutoff);
+                if (bucket == null) {
+                    skippedClaims.incrementAndGet();
+                    continue;
+                }
+                if (archive(bucket)) {
+                    archived++;
+                }
+            } catch (Exception e) {
+                failedBuckets.incrementAndGet();
+                logger.warn("Failed to archive chat bucket {}: {}", candidate.getId(), e.getMessage());
+            }
+        }
+        if (archived > 0) {
+            logger.info("Archived {} chat buckets older than {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("archiveAfterDays", archiveAfterDays);
+        stats.put("archivedBuckets", archivedBuckets.get());
+        stats.put("archivedMessages", archivedMessages.get());
+        stats.put("compressedBytes", compressedBytes.get());
+        stats.put("failedBuckets", failedBuckets.get());
+        stats.put("skippedClaims", skippedClaims.get());
+        stats.put("rolledBack", rolledBack.get());
+        return stats;
+    }
+
+    /**
+     * 认领尚未被其他节点持有（或租约已过期）的冷桶，返回认领后的最新内容；桶已被归档删除或正被认领时返回 null。
+     */
+    private ChatMessageBucket claim(String bucketId, LocalDateTime cutoff) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("id").is(bucketId).and("endTime").lt(cutoff)
+                .orOperator(Criteria.where("archiveLeaseUntil").is(null), Criteria.where("archiveLeaseUntil").lt(now)));
+        Update update = new Update().set("archiveOwner", ownerId)
+                .set("archiveLeaseUntil", now.plus(Duration.ofMillis(archiveLeaseMs)));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                ChatMessageBucket.class);
+    }
+
+    private boolean archive(ChatMessageBucket bucket) {
+        byte[] payload = ChatArchiveCodec.encode(bucket.getMessages());
+
+        ChatMessageArchive archive = new ChatMessageArchive();
+        archive.setId(bucket.getId());
+        archive.setConversationId(bucket.getConversationId());
+        archive.setDay(bucket.getDay());
+        archive.setStartTime(bucket.getStartTime());
+        archive.setEndTime(bucket.getEndTime());
+        archive.setCount(bucket.getCount());
+        archive.setMaxSeq(bucket.getMaxSeq());
+        archive.setPayload(payload);
+        archive.setArchivedTime(LocalDateTime.now());
+        mongoTemplate.save(archive);
+
+        Criteria owned = Criteria.where("id").is(bucket.getId()).and("archiveOwner").is(ownerId);
+        long removed = mongoTemplate.remove(new Query(Criteria.where("id").is(bucket.getId())
+                        .and("archiveOwner").is(ownerId).and("version").is(bucket.getVersion())),
+                ChatMessageBucket.class).getDeletedCount();
+        if (removed == 0) {
+            // 原桶仍由本节点持有说明归档期间被追加或置已读：撤回归档副本并释放认领，下一轮重新归档。
+            // 原桶已不存在或已被其他节点接手时归档副本由对方负责，不能删除
+            if (mongoTemplate.exists(new Query(owned), ChatMessageBucket.class)) {
+                mongoTemplate.remove(new Query(Criteria.where("id").is(bucket.getId())), ChatMessageArchive.class);
+                mongoTemplate.updateFirst(new Query(owned),
+                        new Update().unset("archiveOwner").unset("archiveLeaseUntil"), ChatMessageBucket.class);
+                rolledBack.incrementAndGet();
+            }
+            return false;
+        }
+
+        archivedBuckets.incrementAndGet();
+        archivedMessages.addAndGet(bucket.getMessages() != null ? bucket.getMessages().size() : 0);
+        compressedBytes.addAndGet(payload.length);
+        return true;
+    }
+}
@@ -0,0 +1,216 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatInboxEntry;
+import com.hitutor.document.ChatMessage;
+import com.hitutor.entity.Conversation;
+import com.hitutor.entity.User;
+import com.hitutor.service.ChatInboxService;
+import com.hitutor.service.ChatMessageStore;
+import com.hitutor.service.SyncSequenceService;
+import com.hitutor.service.UserService;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ChatInboxServiceImpl implements ChatInboxService {
+
+    private static final String BACKFILL_COLLECTION = "chat_inbox_backfills";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SyncSequenceService syncSequenceService;
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Value("${app.chat.inbox.preview-length:50}")
+    private int previewLength;
+
+    private final Set<String> backfilledUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 发送方和接收方各做一次 upsert；只有新建条目时才查询一次对方资料补全摘要。
+     * 条目沿用消息的同步序号：写入器在 afterWrite 回调结束后才释放该序号，条目不会被同步游标越过，
+     * 也不必为每条消息再向计数器申请序号。
+     */
+    @Override
+    public void onMessageSent(ChatMessage message) {
+        long seq = message.getSeq();
+        upsertEntry(message, message.getSenderId(), message.getReceiverId(), false, seq);
+        upsertEntry(message, message.getReceiverId(), message.getSenderId(), true, seq);
+    }
+
+    @Override
+    public void onConversationRead(String conversationId, String userId, long seq) {
+        Query query = entryQuery(userId, conversationId).addCriteria(Criteria.where("unreadCount").gt(0));
+        mongoTemplate.updateFirst(query,
+                new Update().set("unreadCount", 0).set("updateTime", LocalDateTime.now()).max("seq", seq),
+                ChatInboxEntry.class);
+    }
+
+    @Override
+    public List<ChatInboxEntry> getInbox(String userId, int limit) {
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Order.desc("lastMessageTime")))
+                .limit(limit);
+        return mongoTemplate.find(query, ChatInboxEntry.class);
+    }
+
+    @Override
+    public ChatInboxEntry getEntry(String userId, String conversationId) {
+        return mongoTemplate.findOne(entryQuery(userId, conversationId), ChatInboxEntry.class);
+    }
+
+    @Override
+    public void refreshPeerProfile(String userId, String username, String avatar) {
+        long seq = syncSequenceService.next();
+        try {
+            mongoTemplate.updateMulti(new Query(Criteria.where("peerId").is(userId)),
+                    new Update().set("peerName", username).set("peerAvatar", avatar)
+                            .set("updateTime", LocalDateTime.now()).max("seq", seq),
+                    ChatInboxEntry.class);
+        } finally {
+            syncSequenceService.release(seq);
+        }
+    }
+
+    @Override
+    public boolean isBackfilled(String userId) {
+        if (backfilledUsers.contains(userId)) {
+            return true;
+        }
+        if (mongoTemplate.exists(new Query(Criteria.where("_id").is(userId)), BACKFILL_COLLECTION)) {
+            backfilledUsers.add(userId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 收件箱投影上线前的历史会话没有条目，用户首次读取会话列表时按会话表补齐。
+     * 只在条目不存在时写入（setOnInsert），不会覆盖之后由消息维护的条目；补齐的条目未读数为 0。
+     */
+    @Override
+    public void backfill(String userId, List<Conversation> conversations) {
+        long seq = syncSequenceService.next();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (Conversation conversation : conversations) {
+                String conversationId = String.valueOf(conversation.getId());
+                String peerId = userId.equals(conversation.getUser1Id())
+                        ? conversation.getUser2Id() : conversation.getUser1Id();
+                Update update = new Update()
+                        .setOnInsert("peerId", peerId)
+                        .setOnInsert("lastMessageTime", conversation.getLastMessageTime())
+                        .setOnInsert("unreadCount", 0)
+                        .setOnInsert("updateTime", now)
+                        .setOnInsert("seq", seq);
+                List<ChatMessage> latest = chatMessageStore.findLatest(conversationId, 1);
+                if (!latest.isEmpty()) {
+                    ChatMessage last = latest.get(0);
+                    update.setOnInsert("lastMessageId", last.getId())
+                            .setOnInsert("lastMessagePreview", preview(last.getContent()))
+                            .setOnInsert("lastMessageType", last.getMessageType())
+                            .setOnInsert("lastSenderId", last.getSenderId());
+                }
+                UpdateResult result = mongoTemplate.upsert(entryQuery(userId, conversationId), update, ChatInboxEntry.class);
+                if (result.getUpsertedId() != null) {
+                    fillPeerProfile(userId, conversationId, peerId);
+                }
+            }
+        } finally {
+            syncSequenceService.release(seq);
+        }
+        mongoTemplate.save(new Document("_id", userId).append("backfillTime", new Date()), BACKFILL_COLLECTION);
+        backfilledUsers.add(userId);
+    }
+
+    /**
+     * 摘要字段（最新消息 ID、预览、类型、发送方、时间）只在消息比条目中的最新消息更新时整体覆盖，
+     * 按 (create_time, _id) 比较；乱序到达的旧消息只累加未读数和推进序号，摘要与时间保持一致。
+     */
+    private void upsertEntry(ChatMessage message, String ownerId, String peerId, boolean incoming, long seq) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria newer = Criteria.where("userId").is(ownerId).and("conversationId").is(message.getConversationId())
+                .orOperator(Criteria.where("lastMessageTime").is(null),
+                        Criteria.where("lastMessageTime").lt(message.getCreateTime()),
+                        Criteria.where("lastMessageTime").is(message.getCreateTime()).and("lastMessageId").lt(message.getId()));
+        Update latest = new Update()
+                .set("peerId", peerId)
+                .set("lastMessageId", message.getId())
+                .set("lastMessagePreview", preview(message.getContent()))
+                .set("lastMessageType", message.getMessageType())
+                .set("lastSenderId", message.getSenderId())
+                .set("lastMessageTime", message.getCreateTime())
+                .set("updateTime", now)
+                .max("seq", seq);
+        if (incoming) {
+            latest.inc("unreadCount", 1);
+        }
+        if (mongoTemplate.updateFirst(new Query(newer), latest, ChatInboxEntry.class).getMatchedCount() > 0) {
+            return;
+        }
+
+        // 条目不存在时新建；已有更新的消息时只调整未读数和序号
+        Update update = new Update()
+                .set("peerId", peerId)
+                .setOnInsert("lastMessageId", message.getId())
+                .setOnInsert("lastMessagePreview", preview(message.getContent()))
+                .setOnInsert("lastMessageType", message.getMessageType())
+                .setOnInsert("lastSenderId", message.getSenderId())
+                .setOnInsert("lastMessageTime", message.getCreateTime())
+                .set("updateTime", now)
+                .max("seq", seq);
+        if (incoming) {
+            update.inc("unreadCount", 1);
+        } else {
+            update.setOnInsert("unreadCount", 0);
+        }
+
+        UpdateResult result = mongoTemplate.upsert(entryQuery(ownerId, message.getConversationId()),
+                update, ChatInboxEntry.class);
+        if (result.getUpsertedId() != null) {
+            fillPeerProfile(ownerId, message.getConversationId(), peerId);
+        }
+    }
+
+    private void fillPeerProfile(String ownerId, String conversationId, String peerId) {
+        User peer = userService.getUserById(peerId);
+        if (peer == null) {
+            return;
+        }
+        mongoTemplate.updateFirst(entryQuery(ownerId, conversationId),
+                new Update().set("peerName", peer.getUsername()).set("peerAvatar", peer.getAvatar()),
+                ChatInboxEntry.class);
+    }
+
+    private Query entryQuery(String userId, String conversationId) {
+        return new Query(Criteria.where("userId").is(userId).and("conversationId").is(conversationId));
+    }
+
+    private String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        return content.length() > previewLength ? content.substring(0, previewLength) + "..." : content;
+    }
+}
@@ -0,0 +1,184 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatInboxEntry;
+import com.hitutor.document.ChatMessage;
+import com.hitutor.document.ChatReadWatermark;
+import com.hitutor.service.ChatInboxService;
+import com.hitutor.service.ChatMessageService;
+import com.hitutor.service.ChatMessageStore;
+import com.hitutor.service.ChatMessageWriter;
+import com.hitutor.service.ReactiveChatMessageStore;
+import com.hitutor.service.RecentMessageCache;
+import com.hitutor.service.SyncSequenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class ChatMessageServiceImpl implements ChatMessageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageServiceImpl.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Autowired
+    private ChatInboxService chatInboxService;
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private SyncSequenceService syncSequenceService;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired(required = false)
+    private ReactiveChatMessageStore reactiveChatMessageStore;
+
+    @Override
+    public Page<ChatMessage> getMessagePage(String conversationId, int page, int size) {
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.max(size, 1));
+        long total = chatMessageStore.count(conversationId);
+        List<ChatMessage> content = chatMessageStore.findPage(conversationId, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public List<ChatMessage> getLatestMessages(String conversationId, int limit) {
+        List<ChatMessage> cached = recentMessageCache.getLatest(conversationId, limit);
+        if (cached != null) {
+            return cached;
+        }
+        if (limit > recentMessageCache.getCapacity()) {
+            return chatMessageStore.findLatest(conversationId, limit);
+        }
+        // 未命中时按环容量整体加载，后续首屏请求直接从缓存返回；先登记加载，读取期间追加的消息不会丢失
+        long token = recentMessageCache.beginLoad(conversationId);
+        List<ChatMessage> latest;
+        try {
+            latest = chatMessageStore.findLatest(conversationId, recentMessageCache.getCapacity());
+        } catch (RuntimeException e) {
+            recentMessageCache.cancelLoad(conversationId, token);
+            throw e;
+        }
+        recentMessageCache.fill(conversationId, latest, token);
+        return new ArrayList<>(latest.subList(Math.max(0, latest.size() - limit), latest.size()));
+    }
+
+    /**
+     * 以 (create_time, _id) 作为游标，取锚点消息之前的 limit 条，按时间升序返回。
+     */
+    @Override
+    public List<ChatMessage> getMessagesBefore(String conversationId, String messageId, int limit) {
+        return chatMessageStore.findBefore(conversationId, findAnchor(conversationId, messageId), limit);
+    }
+
+    @Override
+    public List<ChatMessage> getMessagesAfter(String conversationId, String messageId, int limit) {
+        return chatMessageStore.findAfter(conversationId, findAnchor(conversationId, messageId), limit);
+    }
+
+    /**
+     * 按时间降序流式返回历史消息。响应式模式下直接由驱动逐条推送；
+     * 阻塞模式下在 boundedElastic 线程上查询后转换为 Flux，不占用请求线程。
+     */
+    @Override
+    public Flux<ChatMessage> streamHistory(String conversationId, String beforeMessageId, int limit) {
+        if (reactiveChatMessageStore != null) {
+            if (beforeMessageId == null || beforeMessageId.isEmpty()) {
+                return reactiveChatMessageStore.streamLatest(conversationId, limit);
+            }
+            return reactiveChatMessageStore.findById(conversationId, beforeMessageId)
+                    .switchIfEmpty(Mono.error(new IllegalArgumentException("消息不存在")))
+                    .flatMapMany(anchor -> reactiveChatMessageStore.streamBefore(conversationId, anchor, limit));
+        }
+        return Flux.defer(() -> {
+            List<ChatMessage> messages = beforeMessageId == null || beforeMessageId.isEmpty()
+                    ? chatMessageStore.findLatest(conversationId, limit)
+                    : getMessagesBefore(conversationId, beforeMessageId, limit);
+            List<ChatMessage> descending = new ArrayList<>(messages);
+            Collections.reverse(descending);
+            return Flux.fromIterable(descending);
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 消息写入成功后才完成返回的 Future；收件箱更新失败不影响发送结果。
+     * WebSocket 和 HTTP 发送都经过这里，写入成功后追加到最近消息缓存。
+     * 缓存和收件箱在写入器的 afterWrite 回调中更新，收件箱条目沿用消息的同步序号。
+     */
+    @Override
+    public CompletableFuture<ChatMessage> sendMessage(ChatMessage message) {
+        return chatMessageWriter.submit(message, saved -> {
+            recentMessageCache.append(saved);
+            try {
+                chatInboxService.onMessageSent(saved);
+            } catch (Exception e) {
+                logger.warn("Failed to update inbox for message {}: {}", saved.getId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 已读状态以 (会话, 用户) 的已读水位表示；旧的 is_read 标记用一次 updateMulti 批量更新，
+     * 数据库操作次数与未读消息数量无关。
+     */
+    @Override
+    public long markAsRead(String conversationId, String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        long seq = syncSequenceService.next();
+        try {
+            Update watermarkUpdate = new Update().max("lastReadTime", now).set("updateTime", now).max("seq", seq);
+            // 记录对方用户，便于对方增量同步时取回已读回执
+            ChatInboxEntry entry = chatInboxService.getEntry(userId, conversationId);
+            if (entry != null && entry.getPeerId() != null) {
+                watermarkUpdate.set("peerId", entry.getPeerId());
+            }
+            Query watermarkQuery = new Query(Criteria.where("conversationId").is(conversationId).and("userId").is(userId));
+            mongoTemplate.upsert(watermarkQuery, watermarkUpdate, ChatReadWatermark.class);
+
+            long updated = chatMessageStore.markRead(conversationId, userId);
+            recentMessageCache.markRead(conversationId, userId);
+            chatInboxService.onConversationRead(conversationId, userId, seq);
+            return updated;
+        } finally {
+            syncSequenceService.release(seq);
+        }
+    }
+
+    @Override
+    public ChatReadWatermark getReadWatermark(String conversationId, String userId) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId).and("userId").is(userId));
+        return mongoTemplate.findOne(query, ChatReadWatermark.class);
+    }
+
+    private ChatMessage findAnchor(String conversationId, String messageId) {
+        ChatMessage anchor = chatMessageStore.findById(conversationId, messageId);
+        if (anchor == null) {
+            throw new IllegalArgumentException("消息不存在");
+        }
+        return anchor;
+    }
+}
@@ -0,0 +1,150 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatMessage;
+import com.hitutor.document.ChatSearchDoc;
+import com.hitutor.service.ChatMessageStore;
+import com.hitutor.service.ChatSearchService;
+import com.hitutor.util.ChatTextTokenizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 基于 n-gram 倒排的消息检索：先用 tokens 的 $all 走索引缩小候选，再用原文子串匹配剔除
+ * 双字都出现但不相邻的误命中。检索范围始终限定在用户参与的消息内。
+ */
+@Service
+public class ChatSearchServiceImpl implements ChatSearchService {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createTime"), Sort.Order.desc("id"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Value("${app.chat.search.max-query-tokens:16}")
+    private int maxQueryTokens;
+
+    /**
+     * 由消息写入线程在每批写入成功后调用，一次批量 upsert；重试的批次重复写入是幂等的。
+     */
+    @Override
+    public void indexAll(List<ChatMessage> messages) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatSearchDoc.class);
+        int count = 0;
+        for (ChatMessage message : messages) {
+            if (!isSearchable(message)) {
+                continue;
+            }
+            Update update = new Update()
+                    .set("conversationId", message.getConversationId())
+                    .set("senderId", message.getSenderId())
+                    .set("receiverId", message.getReceiverId())
+                    .set("content", message.getContent())
+                    .set("tokens", ChatTextTokenizer.indexTokens(message.getContent()))
+                    .set("createTime", message.getCreateTime());
+            bulk.upsert(new Query(Criteria.where("id").is(message.getId())), update);
+            count++;
+        }
+        if (count > 0) {
+            bulk.execute();
+        }
+    }
+
+    @Override
+    public Map<String, Object> search(String userId, String conversationId, String keyword,
+                                      int page, int size, int contextSize) {
+        List<String> tokens = ChatTextTokenizer.queryTokens(keyword);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("搜索关键词不能为空");
+        }
+        if (tokens.size() > maxQueryTokens) {
+            tokens = tokens.subList(0, maxQueryTokens);
+        }
+
+        Criteria criteria;
+        if (conversationId != null && !conversationId.isEmpty()) {
+            criteria = Criteria.where("conversationId").is(conversationId).orOperator(
+                    Criteria.where("senderId").is(userId),
+                    Criteria.where("receiverId").is(userId));
+        } else {
+            criteria = new Criteria().orOperator(
+                    Criteria.where("senderId").is(userId),
+                    Criteria.where("receiverId").is(userId));
+        }
+        criteria.and("tokens").all(tokens)
+                .and("content").regex(Pattern.quote(keyword.trim()), "i");
+
+        Query query = new Query(criteria);
+        long total = mongoTemplate.count(query, ChatSearchDoc.class);
+        query.with(NEWEST_FIRST).skip((long) page * size).limit(size);
+
+        List<Map<String, Object>> hits = new ArrayList<>();
+        for (ChatSearchDoc doc : mongoTemplate.find(query, ChatSearchDoc.class)) {
+            Map<String, Object> hit = new HashMap<>();
+            hit.put("message", toHitMap(doc));
+            if (contextSize > 0) {
+                ChatMessage anchor = new ChatMessage();
+                anchor.setId(doc.getId());
+                anchor.setConversationId(doc.getConversationId());
+                anchor.setCreateTime(doc.getCreateTime());
+                hit.put("before", toMessageMaps(chatMessageStore.findBefore(doc.getConversationId(), anchor, contextSize)));
+                hit.put("after", toMessageMaps(chatMessageStore.findAfter(doc.getConversationId(), anchor, contextSize)));
+            }
+            hits.add(hit);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("content", hits);
+        data.put("totalElements", total);
+        data.put("totalPages", (total + size - 1) / size);
+        data.put("currentPage", page);
+        data.put("size", size);
+        return data;
+    }
+
+    private boolean isSearchable(ChatMessage message) {
+        return message.getContent() != null && !message.getContent().isEmpty()
+                && (message.getMessageType() == null || "text".equals(message.getMessageType()));
+    }
+
+    private Map<String, Object> toHitMap(ChatSearchDoc doc) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", doc.getId());
+        map.put("conversationId", doc.getConversationId());
+        map.put("senderId", doc.getSenderId());
+        map.put("receiverId", doc.getReceiverId());
+        map.put("content", doc.getContent());
+        map.put("createTime", doc.getCreateTime());
+        return map;
+    }
+
+    private List<Map<String, Object>> toMessageMaps(List<ChatMessage> messages) {
+        List<Map<String, Object>> list = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", message.getId());
+            map.put("senderId", message.getSenderId());
+            map.put("receiverId", message.getReceiverId());
+            map.put("content", message.getContent());
+            map.put("messageType", message.getMessageType());
+            map.put("createTime", message.getCreateTime());
+            list.add(map);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,154 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatInboxEntry;
+import com.hitutor.document.ChatMessage;
+import com.hitutor.document.ChatReadWatermark;
+import com.hitutor.service.ChatMessageStore;
+import com.hitutor.service.ChatSyncService;
+import com.hitutor.service.SyncSequenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量同步：先取已落定的高水位序号，再按同步序号分别取 (游标, 高水位] 内的消息、已读水位和收件箱变更
+ * 各 limit+1 条，合并后取序号最小的 limit 条。同一序号的变更不会被拆到两页；
+ * 没有更多变更时游标直接前进到高水位。
+ */
+@Service
+public class ChatSyncServiceImpl implements ChatSyncService {
+
+    private static final Sort BY_SEQ = Sort.by(Sort.Order.asc("seq"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Autowired
+    private SyncSequenceService syncSequenceService;
+
+    @Override
+    public Map<String, Object> sync(String userId, long cursor, int limit) {
+        long highWater = syncSequenceService.settledHighWater();
+        List<SyncItem> items = new ArrayList<>();
+
+        if (highWater > cursor) {
+            for (ChatMessage message : chatMessageStore.findChangedSince(userId, cursor, highWater, limit + 1)) {
+                items.add(new SyncItem("message", message.getSeq(), toMessageMap(message)));
+            }
+
+            Query watermarkQuery = new Query(new Criteria().orOperator(
+                    Criteria.where("userId").is(userId),
+                    Criteria.where("peerId").is(userId))
+                    .and("seq").gt(cursor).lte(highWater))
+                    .with(BY_SEQ)
+                    .limit(limit + 1);
+            for (ChatReadWatermark watermark : mongoTemplate.find(watermarkQuery, ChatReadWatermark.class)) {
+                items.add(new SyncItem("readWatermark", watermark.getSeq(), toWatermarkMap(watermark)));
+            }
+
+            Query inboxQuery = new Query(Criteria.where("userId").is(userId)
+                    .and("seq").gt(cursor).lte(highWater))
+                    .with(BY_SEQ)
+                    .limit(limit + 1);
+            for (ChatInboxEntry entry : mongoTemplate.find(inboxQuery, ChatInboxEntry.class)) {
+                items.add(new SyncItem("conversation", entry.getSeq(), toConversationMap(entry)));
+            }
+        }
+
+        items.sort(Comparator.comparingLong(item -> item.seq));
+        boolean hasMore = items.size() > limit;
+        List<SyncItem> page = hasMore ? items.subList(0, pageEnd(items, limit)) : items;
+
+        List<Map<String, Object>> changes = new ArrayList<>(page.size());
+        for (SyncItem item : page) {
+            Map<String, Object> change = new HashMap<>();
+            change.put("type", item.type);
+            change.put("seq", item.seq);
+            change.put("data", item.data);
+            changes.add(change);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("changes", changes);
+        result.put("nextCursor", hasMore ? page.get(page.size() - 1).seq : Math.max(cursor, highWater));
+        result.put("hasMore", hasMore);
+        return result;
+    }
+
+    // 截断点落在同一序号的变更中间时退回到该序号之前；整页都是同一序号时改为整组返回
+    private static int pageEnd(List<SyncItem> items, int limit) {
+        long boundary = items.get(limit).seq;
+        int end = limit;
+        while (end > 0 && items.get(end - 1).seq == boundary) {
+            end--;
+        }
+        if (end > 0) {
+            return end;
+        }
+        end = limit;
+        while (end < items.size() && items.get(end).seq == boundary) {
+            end++;
+        }
+        return end;
+    }
+
+    private Map<String, Object> toMessageMap(ChatMessage message) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", message.getId());
+        map.put("conversationId", message.getConversationId());
+        map.put("senderId", message.getSenderId());
+        map.put("receiverId", message.getReceiverId());
+        map.put("content", message.getContent());
+        map.put("messageType", message.getMessageType());
+        map.put("isRead", message.getIsRead());
+        map.put("createTime", message.getCreateTime());
+        return map;
+    }
+
+    private Map<String, Object> toWatermarkMap(ChatReadWatermark watermark) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("conversationId", watermark.getConversationId());
+        map.put("userId", watermark.getUserId());
+        map.put("lastReadTime", watermark.getLastReadTime());
+        return map;
+    }
+
+    private Map<String, Object> toConversationMap(ChatInboxEntry entry) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("conversationId", entry.getConversationId());
+        map.put("peerId", entry.getPeerId());
+        map.put("peerName", entry.getPeerName());
+        map.put("peerAvatar", entry.getPeerAvatar());
+        map.put("lastMessageId", entry.getLastMessageId());
+        map.put("lastMessage", entry.getLastMessagePreview());
+        map.put("lastMessageType", entry.getLastMessageType());
+        map.put("lastSenderId", entry.getLastSenderId());
+        map.put("lastMessageTime", entry.getLastMessageTime());
+        map.put("unreadCount", entry.getUnreadCount() != null ? entry.getUnreadCount() : 0);
+        return map;
+    }
+
+    private static class SyncItem {
+        private final String type;
+        private final long seq;
+        private final Map<String, Object> data;
+
+        SyncItem(String type, long seq, Map<String, Object> data) {
+            this.type = type;
+            this.seq = seq;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.ConversationActivityService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ConversationActivityServiceImpl implements ConversationActivityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationActivityServiceImpl.class);
+
+    // 只前进不后退，乱序或重试的刷新不会覆盖更新的时间
+    private static final String UPDATE_SQL =
+            "UPDATE conversations SET last_message_time = ? WHERE id = ? AND last_message_time < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.conversation-activity.max-pending:50000}")
+    private int maxPending;
+
+    private final ConcurrentHashMap<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong overflowWrites = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    /**
+     * 同一会话在一个刷新周期内的多条消息只保留最新时间；缓冲区已满时退化为同步写入。
+     */
+    @Override
+    public void recordActivity(Long conversationId, LocalDateTime messageTime) {
+        if (conversationId == null || messageTime == null) {
+            return;
+        }
+        recorded.incrementAndGet();
+        if (pending.size() >= maxPending && !pending.containsKey(conversationId)) {
+            overflowWrites.incrementAndGet();
+            Timestamp time = Timestamp.valueOf(messageTime);
+            jdbcTemplate.update(UPDATE_SQL, time, conversationId, time);
+            return;
+        }
+        if (pending.containsKey(conversationId)) {
+            coalesced.incrementAndGet();
+        }
+        pending.merge(conversationId, messageTime, ConversationActivityServiceImpl::later);
+    }
+
+    @Override
+    public LocalDateTime getPendingLastMessageTime(Long conversationId) {
+        return conversationId != null ? pending.get(conversationId) : null;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.conversation-activity.flush-interval-ms:1000}")
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<Long> conversationIds = new ArrayList<>();
+        List<LocalDateTime> times = new ArrayList<>();
+        for (Long conversationId : pending.keySet()) {
+            LocalDateTime time = pending.remove(conversationId);
+            if (time != null) {
+                conversationIds.add(conversationId);
+                times.add(time);
+            }
+        }
+        if (conversationIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(conversationIds.size());
+        for (int i = 0; i < conversationIds.size(); i++) {
+            Timestamp time = Timestamp.valueOf(times.get(i));
+            batchArgs.add(new Object[]{time, conversationIds.get(i), time});
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs);
+            flushedRows.addAndGet(batchArgs.size());
+            return batchArgs.size();
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            logger.warn("Failed to flush {} conversation activity updates: {}", batchArgs.size(), e.getMessage());
+            for (int i = 0; i < conversationIds.size(); i++) {
+                pending.merge(conversationIds.get(i), times.get(i), ConversationActivityServiceImpl::later);
+            }
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("maxPending", maxPending);
+        stats.put("recorded", recorded.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("overflowWrites", overflowWrites.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        return stats;
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
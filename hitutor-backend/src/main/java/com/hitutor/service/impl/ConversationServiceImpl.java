@@ -5,10 +5,15 @@ import com.hitutor.entity.Conversation;
 import com.hitutor.mapper.ConversationMapper;
 import com.hitutor.service.ConversationService;
 import com.hitutor.service.BlacklistService;
+import com.hitutor.util.LruCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class ConversationServiceImpl implements ConversationService {
@@ -19,20 +24,23 @@ public class ConversationServiceImpl implements ConversationService {
     @Autowired
     private BlacklistService blacklistService;
 
+    /**
+     * 用户对到会话的映射，键与参与者顺序无关；会话创建后不会变更参与者，只缓存命中的结果。
+     */
+    private final LruCache<String, Conversation> conversationCache;
+
+    public ConversationServiceImpl(@Value("${app.chat.cache.conversation-max-size:100000}") int conversationCacheMaxSize,
+                                   @Value("${app.chat.cache.conversation-ttl-seconds:3600}") long conversationCacheTtlSeconds) {
+        this.conversationCache = new LruCache<>(conversationCacheMaxSize, conversationCacheTtlSeconds * 1000);
+    }
+
     @Override
     public Conversation getOrCreateConversation(String user1Id, String user2Id) {
         if (blacklistService.isBlocked(user1Id, user2Id) || blacklistService.isBlocked(user2Id, user1Id)) {
             throw new RuntimeException("无法与黑名单用户创建会话");
         }
-        
-        QueryWrapper<Conversation> queryWrapper = new QueryWrapper<>();
-        queryWrapper.and(wrapper -> wrapper
-            .eq("user1_id", user1Id).eq("user2_id", user2Id)
-            .or()
-            .eq("user1_id", user2Id).eq("user2_id", user1Id)
-        );
 
-        Conversation conversation = conversationMapper.selectOne(queryWrapper);
+        Conversation conversation = getConversationByUsers(user1Id, user2Id);
 
         if (conversation == null) {
             conversation = new Conversation();
@@ -41,6 +49,7 @@ public class ConversationServiceImpl implements ConversationService {
             conversation.setCreateTime(LocalDateTime.now());
             conversation.setLastMessageTime(LocalDateTime.now());
             conversationMapper.insert(conversation);
+            cacheConversation(conversation);
         }
 
         return conversation;
@@ -53,6 +62,11 @@ public class ConversationServiceImpl implements ConversationService {
 
     @Override
     public Conversation getConversationByUsers(String user1Id, String user2Id) {
+        Conversation cached = conversationCache.get(pairKey(user1Id, user2Id));
+        if (cached != null) {
+            return copyOf(cached);
+        }
+
         QueryWrapper<Conversation> queryWrapper = new QueryWrapper<>();
         queryWrapper.and(wrapper -> wrapper
             .eq("user1_id", user1Id).eq("user2_id", user2Id)
@@ -60,11 +74,58 @@ public class ConversationServiceImpl implements ConversationService {
             .eq("user1_id", user2Id).eq("user2_id", user1Id)
         );
 
-        return conversationMapper.selectOne(queryWrapper);
+        Conversation conversation = conversationMapper.selectOne(queryWrapper);
+        if (conversation != null) {
+            cacheConversation(conversation);
+        }
+        return conversation;
+    }
+
+    @Override
+    public void cacheConversation(Conversation conversation) {
+        conversationCache.put(pairKey(conversation.getUser1Id(), conversation.getUser2Id()), copyOf(conversation));
+    }
+
+    @Override
+    public void evictConversation(String user1Id, String user2Id) {
+        conversationCache.remove(pairKey(user1Id, user2Id));
+    }
+
+    @Override
+    public Map<String, Object> getCacheStats() {
+        return conversationCache.getStats();
+    }
+
+    @Override
+    public List<Long> getConversationIdsByUser(String userId) {
+        QueryWrapper<Conversation> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id")
+            .and(wrapper -> wrapper.eq("user1_id", userId).or().eq("user2_id", userId))
+            .orderByAsc("id");
+        List<Long> ids = new ArrayList<>();
+        for (Conversation conversation : conversationMapper.selectList(queryWrapper)) {
+            ids.add(conversation.getId());
+        }
+        return ids;
     }
 
     @Override
     public boolean updateConversation(Conversation conversation) {
         return conversationMapper.updateById(conversation) > 0;
     }
+
+    private String pairKey(String user1Id, String user2Id) {
+        return user1Id.compareTo(user2Id) <= 0 ? user1Id + ":" + user2Id : user2Id + ":" + user1Id;
+    }
+
+    // 缓存中保存副本，避免调用方修改返回对象（如 lastMessageTime）影响缓存内容
+    private Conversation copyOf(Conversation source) {
+        Conversation copy = new Conversation();
+        copy.setId(source.getId());
+        copy.setUser1Id(source.getUser1Id());
+        copy.setUser2Id(source.getUser2Id());
+        copy.setCreateTime(source.getCreateTime());
+        copy.setLastMessageTime(source.getLastMessageTime());
+        return copy;
+    }
 }
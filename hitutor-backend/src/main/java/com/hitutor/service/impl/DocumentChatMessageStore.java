@@ -0,0 +1,140 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatMessage;
+import com.hitutor.service.ChatMessageStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 每条消息一个文档，存放在 chat_messages 集合。
+ */
+@Service
+@ConditionalOnProperty(name = "app.chat.storage.mode", havingValue = "document", matchIfMissing = true)
+public class DocumentChatMessageStore implements ChatMessageStore {
+
+    private static final Sort ASCENDING = Sort.by(Sort.Order.asc("createTime"), Sort.Order.asc("id"));
+    private static final Sort DESCENDING = Sort.by(Sort.Order.desc("createTime"), Sort.Order.desc("id"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void insertAll(List<ChatMessage> messages) {
+        mongoTemplate.insert(messages, ChatMessage.class);
+    }
+
+    @Override
+    public void save(ChatMessage message) {
+        mongoTemplate.save(message);
+    }
+
+    @Override
+    public long count(String conversationId) {
+        return mongoTemplate.count(new Query(Criteria.where("conversationId").is(conversationId)), ChatMessage.class);
+    }
+
+    @Override
+    public List<ChatMessage> findPage(String conversationId, long offset, int limit) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId))
+                .with(ASCENDING)
+                .skip(offset)
+                .limit(limit);
+        return mongoTemplate.find(query, ChatMessage.class);
+    }
+
+    @Override
+    public List<ChatMessage> findLatest(String conversationId, int limit) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId))
+                .with(DESCENDING)
+                .limit(limit);
+        List<ChatMessage> messages = mongoTemplate.find(query, ChatMessage.class);
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    @Override
+    public List<ChatMessage> findBefore(String conversationId, ChatMessage anchor, int limit) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId).orOperator(
+                Criteria.where("createTime").lt(anchor.getCreateTime()),
+                Criteria.where("createTime").is(anchor.getCreateTime()).and("id").lt(anchor.getId())))
+                .with(DESCENDING)
+                .limit(limit);
+        List<ChatMessage> messages = mongoTemplate.find(query, ChatMessage.class);
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    @Override
+    public List<ChatMessage> findAfter(String conversationId, ChatMessage anchor, int limit) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId).orOperator(
+                Criteria.where("createTime").gt(anchor.getCreateTime()),
+                Criteria.where("createTime").is(anchor.getCreateTime()).and("id").gt(anchor.getId())))
+                .with(ASCENDING)
+                .limit(limit);
+        return mongoTemplate.find(query, ChatMessage.class);
+    }
+
+    @Override
+    public ChatMessage findById(String conversationId, String messageId) {
+        ChatMessage message = mongoTemplate.findById(messageId, ChatMessage.class);
+        if (message == null || !conversationId.equals(message.getConversationId())) {
+            return null;
+        }
+        return message;
+    }
+
+    @Override
+    public void forEach(String conversationId, ChatMessage after, Consumer<ChatMessage> consumer) {
+        Criteria criteria = Criteria.where("conversationId").is(conversationId);
+        if (after != null) {
+            criteria.orOperator(
+                    Criteria.where("createTime").gt(after.getCreateTime()),
+                    Criteria.where("createTime").is(after.getCreateTime()).and("id").gt(after.getId()));
+        }
+        // 按 (conversation_id, create_time, _id) 索引顺序读取，不需要服务端排序
+        Query query = new Query(criteria).with(ASCENDING);
+        try (Stream<ChatMessage> stream = mongoTemplate.stream(query, ChatMessage.class)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    @Override
+    public long markRead(String conversationId, String receiverId) {
+        Query unreadQuery = new Query(Criteria.where("conversationId").is(conversationId)
+                .and("receiverId").is(receiverId)
+                .and("isRead").is(false));
+        return mongoTemplate.updateMulti(unreadQuery, Update.update("isRead", true), ChatMessage.class)
+                .getModifiedCount();
+    }
+
+    @Override
+    public List<ChatMessage> findChangedSince(String userId, long cursor, long highWater, int limit) {
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("receiverId").is(userId),
+                Criteria.where("senderId").is(userId))
+                .and("seq").gt(cursor).lte(highWater))
+                .with(Sort.by(Sort.Order.asc("seq")))
+                .limit(limit);
+        return mongoTemplate.find(query, ChatMessage.class);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", "document");
+        return stats;
+    }
+}
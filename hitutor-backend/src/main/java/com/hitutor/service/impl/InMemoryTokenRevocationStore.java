@@ -0,0 +1,55 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.TokenRevocationStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@ConditionalOnProperty(name = "app.token-revocation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    @Override
+    public void revokeToken(String tokenId, long expiresAtMillis) {
+        revokedTokens.put(tokenId, expiresAtMillis);
+    }
+
+    @Override
+    public boolean isTokenRevoked(String tokenId) {
+        Long expiresAt = revokedTokens.get(tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    @Override
+    public void revokeUser(String userId, long revokedAtMillis) {
+        revokedUsers.merge(userId, revokedAtMillis, Math::max);
+    }
+
+    @Override
+    public Long getUserRevokedAt(String userId) {
+        return revokedUsers.get(userId);
+    }
+
+    @Override
+    public Map<String, Long> getRevokedTokens() {
+        return new HashMap<>(revokedTokens);
+    }
+
+    @Override
+    public Map<String, Long> getRevokedUsers() {
+        return new HashMap<>(revokedUsers);
+    }
+
+    @Override
+    public void purgeExpired(long userRetentionMillis) {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt + userRetentionMillis <= now);
+    }
+}
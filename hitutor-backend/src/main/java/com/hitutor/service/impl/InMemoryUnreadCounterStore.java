@@ -0,0 +1,87 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.UnreadCounterStore;
+import com.hitutor.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内计数，用于单节点部署和测试；多节点部署时各节点的计数互不可见，应使用 redis。
+ * 超过 max-entries 时淘汰最久未访问的用户，条目在 ttl-ms 后过期重新统计。
+ */
+@Service
+@ConditionalOnProperty(name = "app.notification.unread-counter.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryUnreadCounterStore implements UnreadCounterStore {
+
+    private final LruCache<String, Count> counters;
+    private final AtomicLong broadcastMark = new AtomicLong(-1);
+
+    public InMemoryUnreadCounterStore(@Value("${app.notification.unread-counter.max-entries:100000}") int maxEntries,
+                                      @Value("${app.notification.unread-counter.ttl-ms:600000}") long ttlMillis) {
+        this.counters = new LruCache<>(maxEntries, ttlMillis);
+    }
+
+    @Override
+    public Count get(String userId) {
+        return counters.get(userId);
+    }
+
+    @Override
+    public void put(String userId, long count, long broadcastMark) {
+        counters.put(userId, new Count(Math.max(0, count), broadcastMark));
+    }
+
+    @Override
+    public void addIfPresent(String userId, long delta) {
+        counters.computeIfPresent(userId,
+                current -> new Count(Math.max(0, current.getCount() + delta), current.getBroadcastMark()));
+    }
+
+    @Override
+    public Long advanceIfPresent(String userId, long fromMark, long toMark, long delta) {
+        boolean[] advanced = {false};
+        Count updated = counters.computeIfPresent(userId, current -> {
+            if (current.getBroadcastMark() != fromMark) {
+                return current;
+            }
+            advanced[0] = true;
+            return new Count(current.getCount() + delta, toMark);
+        });
+        return advanced[0] ? updated.getCount() : null;
+    }
+
+    @Override
+    public void remove(String userId) {
+        counters.remove(userId);
+    }
+
+    @Override
+    public Long getBroadcastMark() {
+        long mark = broadcastMark.get();
+        return mark >= 0 ? mark : null;
+    }
+
+    @Override
+    public void advanceBroadcastMark(long broadcastId) {
+        broadcastMark.accumulateAndGet(broadcastId, Math::max);
+    }
+
+    @Override
+    public boolean tryAcquireReconcileLease(long leaseMillis) {
+        return true;
+    }
+
+    @Override
+    public Set<String> userIds() {
+        return counters.keys();
+    }
+
+    @Override
+    public long size() {
+        return counters.size();
+    }
+}
@@ -0,0 +1,64 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.VerificationCodeStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@ConditionalOnProperty(name = "app.verification.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryVerificationCodeStore implements VerificationCodeStore {
+
+    private final ConcurrentHashMap<String, StoredCode> codes = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(String phone, String codeHash, long ttlMillis) {
+        codes.put(phone, new StoredCode(codeHash, System.currentTimeMillis() + ttlMillis, 0));
+    }
+
+    @Override
+    public boolean verify(String phone, String codeHash, int maxAttempts) {
+        long now = System.currentTimeMillis();
+        boolean[] matched = {false};
+        codes.computeIfPresent(phone, (key, stored) -> {
+            if (stored.expiresAt <= now) {
+                return null;
+            }
+            if (MessageDigest.isEqual(stored.codeHash.getBytes(StandardCharsets.UTF_8),
+                    codeHash.getBytes(StandardCharsets.UTF_8))) {
+                matched[0] = true;
+                return null;
+            }
+            int attempts = stored.attempts + 1;
+            return attempts >= maxAttempts ? null : new StoredCode(stored.codeHash, stored.expiresAt, attempts);
+        });
+        return matched[0];
+    }
+
+    @Override
+    public void invalidate(String phone) {
+        codes.remove(phone);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        codes.values().removeIf(stored -> stored.expiresAt <= now);
+    }
+
+    private static class StoredCode {
+        private final String codeHash;
+        private final long expiresAt;
+        private final int attempts;
+
+        StoredCode(String codeHash, long expiresAt, int attempts) {
+            this.codeHash = codeHash;
+            this.expiresAt = expiresAt;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.LastLoginService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class LastLoginServiceImpl implements LastLoginService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginServiceImpl.class);
+
+    private static final String UPDATE_SQL =
+            "UPDATE sys_user SET last_login_time = ?, last_login_ip = COALESCE(?, last_login_ip) WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.last-login.max-pending:10000}")
+    private int maxPending;
+
+    private final ConcurrentHashMap<String, LastLogin> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong overflowWrites = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    /**
+     * 同一用户在一个刷新周期内的多次登录只保留最新一次；缓冲区已满时退化为同步写入。
+     */
+    @Override
+    public void recordLogin(String userId, LocalDateTime loginTime, String loginIp) {
+        recorded.incrementAndGet();
+        LastLogin login = new LastLogin(loginTime, loginIp);
+        if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+            overflowWrites.incrementAndGet();
+            jdbcTemplate.update(UPDATE_SQL, Timestamp.valueOf(loginTime), loginIp, userId);
+            return;
+        }
+        if (pending.containsKey(userId)) {
+            coalesced.incrementAndGet();
+        }
+        pending.merge(userId, login, LastLoginServiceImpl::newer);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.last-login.flush-interval-ms:5000}")
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<String> userIds = new ArrayList<>();
+        List<LastLogin> logins = new ArrayList<>();
+        for (String userId : pending.keySet()) {
+            LastLogin login = pending.remove(userId);
+            if (login != null) {
+                userIds.add(userId);
+                logins.add(login);
+            }
+        }
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            LastLogin login = logins.get(i);
+            batchArgs.add(new Object[]{Timestamp.valueOf(login.loginTime), login.loginIp, userIds.get(i)});
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs);
+            flushedRows.addAndGet(batchArgs.size());
+            return batchArgs.size();
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            logger.warn("Failed to flush {} last-login updates: {}", batchArgs.size(), e.getMessage());
+            for (int i = 0; i < userIds.size(); i++) {
+                pending.merge(userIds.get(i), logins.get(i), LastLoginServiceImpl::newer);
+            }
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("maxPending", maxPending);
+        stats.put("recorded", recorded.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("overflowWrites", overflowWrites.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        return stats;
+    }
+
+    private static LastLogin newer(LastLogin a, LastLogin b) {
+        return a.loginTime.isAfter(b.loginTime) ? a : b;
+    }
+
+    private static class LastLogin {
+        private final LocalDateTime loginTime;
+        private final String loginIp;
+
+        LastLogin(LocalDateTime loginTime, String loginIp) {
+            this.loginTime = loginTime;
+            this.loginIp = loginIp;
+        }
+    }
+}
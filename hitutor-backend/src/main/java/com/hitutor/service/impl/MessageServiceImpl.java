@@ -2,15 +2,21 @@ package com.hitutor.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hitutor.document.ChatInboxEntry;
 import com.hitutor.entity.Conversation;
 import com.hitutor.mapper.ConversationMapper;
+import com.hitutor.service.ChatInboxService;
+import com.hitutor.service.ConversationActivityService;
+import com.hitutor.service.ConversationService;
 import com.hitutor.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,35 +24,78 @@ import java.util.Map;
 @Service
 public class MessageServiceImpl extends ServiceImpl<ConversationMapper, Conversation> implements MessageService {
 
+    @Autowired
+    private ChatInboxService chatInboxService;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private ConversationActivityService conversationActivityService;
+
+    @Value("${app.chat.inbox.max-conversations:200}")
+    private int maxConversations;
+
     @Override
     public List<Map<String, Object>> getConversationsByUserId(String userId) {
+        // 收件箱投影上线前的历史会话没有对应条目，首次读取时从会话表补齐，之后只读收件箱
+        if (!chatInboxService.isBackfilled(userId)) {
+            chatInboxService.backfill(userId, getConversationsFromTable(userId));
+        }
+
+        List<ChatInboxEntry> entries = chatInboxService.getInbox(userId, maxConversations);
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (ChatInboxEntry entry : entries) {
+            result.add(toConversationMap(entry));
+        }
+        return result;
+    }
+
+    private Map<String, Object> toConversationMap(ChatInboxEntry entry) {
+        Map<String, Object> convMap = new HashMap<>();
+        // 会话表的 ID 为数字，与旧接口保持一致按数字返回；非数字的会话 ID 原样返回字符串
+        String conversationId = entry.getConversationId();
+        boolean numeric = conversationId != null && !conversationId.isEmpty()
+                && conversationId.length() <= 18 && conversationId.chars().allMatch(Character::isDigit);
+        convMap.put("id", numeric ? (Object) Long.parseLong(conversationId) : conversationId);
+        convMap.put("user1Id", entry.getUserId());
+        convMap.put("user2Id", entry.getPeerId());
+        convMap.put("lastMessageTime", entry.getLastMessageTime());
+        convMap.put("peerId", entry.getPeerId());
+        convMap.put("peerName", entry.getPeerName());
+        convMap.put("peerAvatar", entry.getPeerAvatar());
+        convMap.put("lastMessageId", entry.getLastMessageId());
+        convMap.put("lastMessage", entry.getLastMessagePreview());
+        convMap.put("lastMessageType", entry.getLastMessageType());
+        convMap.put("lastSenderId", entry.getLastSenderId());
+        convMap.put("unreadCount", entry.getUnreadCount() != null ? entry.getUnreadCount() : 0);
+        return convMap;
+    }
+
+    private List<Conversation> getConversationsFromTable(String userId) {
         QueryWrapper<Conversation> wrapper = new QueryWrapper<>();
         wrapper.and(w -> w.eq("user1_id", userId).or().eq("user2_id", userId));
         wrapper.orderByDesc("last_message_time");
+        wrapper.last("LIMIT " + maxConversations);
         
         List<Conversation> conversations = baseMapper.selectList(wrapper);
         
-        List<Map<String, Object>> result = new ArrayList<>();
+        // 尚未刷入数据库的最新消息时间以内存值为准，并据此重新排序
         for (Conversation conv : conversations) {
-            Map<String, Object> convMap = new HashMap<>();
-            convMap.put("id", conv.getId());
-            convMap.put("user1Id", conv.getUser1Id());
-            convMap.put("user2Id", conv.getUser2Id());
-            convMap.put("lastMessageTime", conv.getLastMessageTime());
-            result.add(convMap);
+            LocalDateTime pendingTime = conversationActivityService.getPendingLastMessageTime(conv.getId());
+            if (pendingTime != null && (conv.getLastMessageTime() == null || pendingTime.isAfter(conv.getLastMessageTime()))) {
+                conv.setLastMessageTime(pendingTime);
+            }
         }
-        
-        return result;
+        conversations.sort(Comparator.comparing(Conversation::getLastMessageTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return conversations;
     }
 
     @Override
     @Transactional
     public Conversation createConversation(String user1Id, String user2Id) {
-        QueryWrapper<Conversation> wrapper = new QueryWrapper<>();
-        wrapper.and(w -> w.eq("user1_id", user1Id).eq("user2_id", user2Id))
-               .or(w -> w.eq("user1_id", user2Id).eq("user2_id", user1Id));
-        
-        Conversation existingConv = baseMapper.selectOne(wrapper);
+        Conversation existingConv = conversationService.getConversationByUsers(user1Id, user2Id);
         if (existingConv != null) {
             return existingConv;
         }
@@ -58,6 +107,7 @@ public class MessageServiceImpl extends ServiceImpl<ConversationMapper, Conversa
         conversation.setCreateTime(LocalDateTime.now());
         
         baseMapper.insert(conversation);
+        conversationService.cacheConversation(conversation);
         return conversation;
     }
 
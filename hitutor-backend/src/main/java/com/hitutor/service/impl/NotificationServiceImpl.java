@@ -1,32 +1,80 @@
 package com.hitutor.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hitutor.entity.BroadcastNotification;
+import com.hitutor.entity.BroadcastReadWatermark;
 import com.hitutor.entity.Notification;
+import com.hitutor.entity.User;
+import com.hitutor.mapper.BroadcastNotificationMapper;
+import com.hitutor.mapper.BroadcastReadWatermarkMapper;
 import com.hitutor.mapper.NotificationMapper;
+import com.hitutor.mapper.UserMapper;
 import com.hitutor.service.NotificationService;
+import com.hitutor.service.UnreadCounterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
 public class NotificationServiceImpl extends ServiceImpl<NotificationMapper, Notification> implements NotificationService {
 
+    // 水位只前进不后退，并发的已读请求不会互相覆盖
+    private static final String ADVANCE_WATERMARK_SQL =
+            "INSERT INTO broadcast_read_watermarks (user_id, last_read_id) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE last_read_id = GREATEST(last_read_id, VALUES(last_read_id))";
+
+    private static final Comparator<Notification> NEWEST_FIRST = Comparator
+            .comparing(Notification::getCreateTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Notification::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @Autowired
+    private BroadcastNotificationMapper broadcastNotificationMapper;
+
+    @Autowired
+    private BroadcastReadWatermarkMapper broadcastReadWatermarkMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
     @Override
     public Notification createNotification(Notification notification) {
         baseMapper.insert(notification);
+        if (notification.getIsRead() == null || notification.getIsRead() == 0) {
+            unreadCounterService.increment(notification.getUserId());
+        }
         return notification;
     }
 
     @Override
     public boolean markAsRead(Long notificationId) {
+        if (isBroadcastId(notificationId)) {
+            throw new IllegalArgumentException("广播通知需按用户标记已读");
+        }
         Notification notification = baseMapper.selectById(notificationId);
         if (notification == null) {
             return false;
         }
-        notification.setIsRead(1);
-        return baseMapper.updateById(notification) > 0;
+        // 只有从未读变为已读的那次更新才减少计数，重复标记不会重复扣减
+        UpdateWrapper<Notification> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", notificationId).eq("is_read", 0).set("is_read", 1);
+        if (baseMapper.update(null, updateWrapper) > 0) {
+            unreadCounterService.decrement(notification.getUserId());
+        }
+        return true;
     }
 
     @Override
@@ -39,29 +87,59 @@ public class NotificationServiceImpl extends ServiceImpl<NotificationMapper, Not
             notification.setIsRead(1);
             baseMapper.updateById(notification);
         }
+
+        BroadcastNotification latest = broadcastNotificationMapper.selectOne(
+                new QueryWrapper<BroadcastNotification>().select("id").orderByDesc("id").last("LIMIT 1"));
+        if (latest != null) {
+            jdbcTemplate.update(ADVANCE_WATERMARK_SQL, userId, latest.getId());
+        }
+        unreadCounterService.reset(userId);
         return true;
     }
 
+    /**
+     * 个人通知与广播通知在读取时合并：两边各取前 page * size 条按时间倒序归并后截取当前页，
+     * 广播通知只对发送时已注册的用户可见，已读状态由用户的广播水位决定。
+     */
     @Override
     public List<Notification> getUserNotifications(String userId, Integer page, Integer size) {
+        int window = page * size;
         QueryWrapper<Notification> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("user_id", userId).orderByDesc("create_time");
-        
-        Page<Notification> pageObj = new Page<>(page, size);
-        Page<Notification> resultPage = baseMapper.selectPage(pageObj, queryWrapper);
-        return resultPage.getRecords();
+        List<Notification> merged = new ArrayList<>(
+                baseMapper.selectPage(new Page<>(1, window, false), queryWrapper).getRecords());
+
+        long watermark = getBroadcastWatermark(userId);
+        QueryWrapper<BroadcastNotification> broadcastWrapper = visibleBroadcasts(userId);
+        broadcastWrapper.orderByDesc("create_time").orderByDesc("id");
+        for (BroadcastNotification broadcast : broadcastNotificationMapper
+                .selectPage(new Page<>(1, window, false), broadcastWrapper).getRecords()) {
+            merged.add(toNotification(userId, broadcast, watermark));
+        }
+
+        merged.sort(NEWEST_FIRST);
+        int from = Math.min((page - 1) * size, merged.size());
+        return new ArrayList<>(merged.subList(from, Math.min(from + size, merged.size())));
     }
 
     @Override
     public int getUnreadCount(String userId) {
-        QueryWrapper<Notification> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("user_id", userId).eq("is_read", 0);
-        return baseMapper.selectCount(queryWrapper).intValue();
+        return unreadCounterService.getUnreadCount(userId);
     }
 
     @Override
     public boolean deleteNotification(Long notificationId) {
-        return baseMapper.deleteById(notificationId) > 0;
+        if (isBroadcastId(notificationId)) {
+            throw new IllegalArgumentException("广播通知不能删除");
+        }
+        Notification notification = baseMapper.selectById(notificationId);
+        if (notification == null || baseMapper.deleteById(notificationId) == 0) {
+            return false;
+        }
+        if (notification.getIsRead() == null || notification.getIsRead() == 0) {
+            unreadCounterService.decrement(notification.getUserId());
+        }
+        return true;
     }
 
     @Override
@@ -73,4 +151,75 @@ public class NotificationServiceImpl extends ServiceImpl<NotificationMapper, Not
         Page<Notification> resultPage = baseMapper.selectPage(pageObj, queryWrapper);
         return resultPage.getRecords();
     }
+
+    @Override
+    public BroadcastNotification createBroadcast(String type, String title, String content) {
+        BroadcastNotification broadcast = new BroadcastNotification();
+        broadcast.setType(type);
+        broadcast.setTitle(title);
+        broadcast.setContent(content);
+        broadcast.setCreateTime(LocalDateTime.now());
+        broadcastNotificationMapper.insert(broadcast);
+        unreadCounterService.onBroadcastCreated(broadcast.getId());
+        return broadcast;
+    }
+
+    /**
+     * 广播已读以水位表示，标记某条广播已读时同时视为更早的广播已读。
+     * broadcastId 为广播表中的 ID，不是合并列表中的负数 ID。
+     */
+    @Override
+    public boolean markBroadcastAsRead(String userId, Long broadcastId) {
+        if (broadcastNotificationMapper.selectById(broadcastId) == null) {
+            return false;
+        }
+        jdbcTemplate.update(ADVANCE_WATERMARK_SQL, userId, broadcastId);
+        unreadCounterService.invalidate(userId);
+        return true;
+    }
+
+    @Override
+    public List<BroadcastNotification> getAllBroadcasts(Integer page, Integer size) {
+        QueryWrapper<BroadcastNotification> queryWrapper = new QueryWrapper<>();
+        queryWrapper.orderByDesc("create_time");
+        return broadcastNotificationMapper.selectPage(new Page<>(page, size), queryWrapper).getRecords();
+    }
+
+    @Override
+    public boolean isBroadcastId(Long notificationId) {
+        return notificationId != null && notificationId < 0;
+    }
+
+    @Override
+    public Long toBroadcastId(Long notificationId) {
+        return -notificationId;
+    }
+
+    private QueryWrapper<BroadcastNotification> visibleBroadcasts(String userId) {
+        QueryWrapper<BroadcastNotification> queryWrapper = new QueryWrapper<>();
+        User user = userMapper.selectById(userId);
+        if (user != null && user.getCreateTime() != null) {
+            queryWrapper.ge("create_time", user.getCreateTime());
+        }
+        return queryWrapper;
+    }
+
+    private long getBroadcastWatermark(String userId) {
+        BroadcastReadWatermark watermark = broadcastReadWatermarkMapper.selectById(userId);
+        return watermark != null && watermark.getLastReadId() != null ? watermark.getLastReadId() : 0L;
+    }
+
+    private Notification toNotification(String userId, BroadcastNotification broadcast, long watermark) {
+        // 合并列表中广播使用负数 ID，与个人通知的 ID 区分
+        Notification notification = new Notification();
+        notification.setId(-broadcast.getId());
+        notification.setUserId(userId);
+        notification.setType(broadcast.getType());
+        notification.setTitle(broadcast.getTitle());
+        notification.setContent(broadcast.getContent());
+        notification.setIsRead(broadcast.getId() <= watermark ? 1 : 0);
+        notification.setCreateTime(broadcast.getCreateTime());
+        notification.setBroadcast(true);
+        return notification;
+    }
 }
@@ -0,0 +1,57 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.document.ChatMessage;
+import com.hitutor.service.ReactiveChatMessageStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * chat_messages 单文档存储的响应式实现；分桶存储仍走阻塞路径。
+ */
+@Service
+@ConditionalOnExpression("'${app.chat.io-mode:blocking}' == 'reactive' and '${app.chat.storage.mode:document}' == 'document'")
+public class ReactiveDocumentChatMessageStore implements ReactiveChatMessageStore {
+
+    private static final Sort DESCENDING = Sort.by(Sort.Order.desc("createTime"), Sort.Order.desc("id"));
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<Void> insertAll(List<ChatMessage> messages) {
+        return reactiveMongoTemplate.insert(messages, ChatMessage.class).then();
+    }
+
+    @Override
+    public Mono<ChatMessage> findById(String conversationId, String messageId) {
+        Query query = new Query(Criteria.where("id").is(messageId).and("conversationId").is(conversationId));
+        return reactiveMongoTemplate.findOne(query, ChatMessage.class);
+    }
+
+    @Override
+    public Flux<ChatMessage> streamLatest(String conversationId, int limit) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId))
+                .with(DESCENDING)
+                .limit(limit);
+        return reactiveMongoTemplate.find(query, ChatMessage.class);
+    }
+
+    @Override
+    public Flux<ChatMessage> streamBefore(String conversationId, ChatMessage anchor, int limit) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId).orOperator(
+                Criteria.where("createTime").lt(anchor.getCreateTime()),
+                Criteria.where("createTime").is(anchor.getCreateTime()).and("id").lt(anchor.getId())))
+                .with(DESCENDING)
+                .limit(limit);
+        return reactiveMongoTemplate.find(query, ChatMessage.class);
+    }
+}
@@ -0,0 +1,76 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.TokenRevocationStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@ConditionalOnProperty(name = "app.token-revocation.store", havingValue = "redis")
+public class RedisTokenRevocationStore implements TokenRevocationStore {
+
+    private static final String TOKENS_KEY = "hitutor:revoked:tokens";
+    private static final String USERS_KEY = "hitutor:revoked:users";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Override
+    public void revokeToken(String tokenId, long expiresAtMillis) {
+        redisTemplate.opsForZSet().add(TOKENS_KEY, tokenId, expiresAtMillis);
+    }
+
+    @Override
+    public boolean isTokenRevoked(String tokenId) {
+        Double expiresAt = redisTemplate.opsForZSet().score(TOKENS_KEY, tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    @Override
+    public void revokeUser(String userId, long revokedAtMillis) {
+        redisTemplate.opsForZSet().add(USERS_KEY, userId, revokedAtMillis);
+    }
+
+    @Override
+    public Long getUserRevokedAt(String userId) {
+        Double revokedAt = redisTemplate.opsForZSet().score(USERS_KEY, userId);
+        return revokedAt != null ? revokedAt.longValue() : null;
+    }
+
+    @Override
+    public Map<String, Long> getRevokedTokens() {
+        return toMap(redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(TOKENS_KEY, System.currentTimeMillis(), Double.POSITIVE_INFINITY));
+    }
+
+    @Override
+    public Map<String, Long> getRevokedUsers() {
+        return toMap(redisTemplate.opsForZSet().rangeWithScores(USERS_KEY, 0, -1));
+    }
+
+    @Override
+    public void purgeExpired(long userRetentionMillis) {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().removeRangeByScore(TOKENS_KEY, 0, now);
+        redisTemplate.opsForZSet().removeRangeByScore(USERS_KEY, 0, now - userRetentionMillis);
+    }
+
+    private Map<String, Long> toMap(Set<ZSetOperations.TypedTuple<String>> tuples) {
+        Map<String, Long> result = new HashMap<>();
+        if (tuples == null) {
+            return result;
+        }
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            if (tuple.getValue() != null && tuple.getScore() != null) {
+                result.put(tuple.getValue(), tuple.getScore().longValue());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.UnreadCounterStore;
+import com.hitutor.util.LruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Redis 计数叠加本地 LRU 镜像：每个用户一个带 TTL 的哈希键（count、mark），过期后下次读取重新统计，
+ * 重启或长期不活跃的用户不会残留计数。读取优先命中本地，写入同时写本地和 Redis；
+ * 其他节点的变更只写到 Redis，本地条目超过 local-ttl-ms 后回源 Redis 重新读取，节点间的偏差不超过该时长。
+ */
+@Service
+@ConditionalOnProperty(name = "app.notification.unread-counter.store", havingValue = "redis")
+public class RedisUnreadCounterStore implements UnreadCounterStore {
+
+    private static final String COUNTER_KEY_PREFIX = "hitutor:notification:unread:";
+    private static final String BROADCAST_MARK_KEY = "hitutor:notification:unread-broadcast-mark";
+    private static final String RECONCILE_LEASE_KEY = "hitutor:notification:unread-reconcile-lease";
+
+    private static final DefaultRedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HSET', KEYS[1], 'count', ARGV[1], 'mark', ARGV[2]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return 1", Long.class);
+
+    // 只调整已缓存的计数，未缓存的用户下次读取时从数据库加载；计数不低于 0，HINCRBY 保留键的 TTL
+    private static final DefaultRedisScript<Long> ADD_IF_PRESENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local count = redis.call('HINCRBY', KEYS[1], 'count', ARGV[1]) " +
+            "if count < 0 then redis.call('HSET', KEYS[1], 'count', 0) return 0 end " +
+            "return count", Long.class);
+
+    private static final DefaultRedisScript<Long> ADVANCE_IF_PRESENT_SCRIPT = new DefaultRedisScript<>(
+            "local mark = redis.call('HGET', KEYS[1], 'mark') " +
+            "if not mark or tonumber(mark) ~= tonumber(ARGV[1]) then return -1 end " +
+            "redis.call('HSET', KEYS[1], 'mark', ARGV[2]) " +
+            "return redis.call('HINCRBY', KEYS[1], 'count', ARGV[3])", Long.class);
+
+    private static final DefaultRedisScript<Long> ADVANCE_MARK_SCRIPT = new DefaultRedisScript<>(
+            "local current = tonumber(redis.call('GET', KEYS[1]) or '-1') " +
+            "if tonumber(ARGV[1]) > current then redis.call('SET', KEYS[1], ARGV[1]) return 1 end " +
+            "return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private final long ttlMillis;
+    private final long localTtlMillis;
+    private final LruCache<String, Count> local;
+    private volatile long localMark = -1;
+    private volatile long localMarkLoadedAt;
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    public RedisUnreadCounterStore(@Value("${app.notification.unread-counter.max-entries:100000}") int maxEntries,
+                                   @Value("${app.notification.unread-counter.ttl-ms:600000}") long ttlMillis,
+                                   @Value("${app.notification.unread-counter.local-ttl-ms:2000}") long localTtlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.localTtlMillis = localTtlMillis;
+        this.local = new LruCache<>(maxEntries, localTtlMillis);
+    }
+
+    @Override
+    public Count get(String userId) {
+        Count cached = local.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        List<Object> values = redisTemplate.opsForHash().multiGet(key(userId), List.of("count", "mark"));
+        if (values.get(0) == null || values.get(1) == null) {
+            return null;
+        }
+        Count count = new Count(Long.parseLong(values.get(0).toString()), Long.parseLong(values.get(1).toString()));
+        local.put(userId, count);
+        return count;
+    }
+
+    @Override
+    public void put(String userId, long count, long broadcastMark) {
+        long value = Math.max(0, count);
+        redisTemplate.execute(PUT_SCRIPT, Collections.singletonList(key(userId)),
+                String.valueOf(value), String.valueOf(broadcastMark), String.valueOf(ttlMillis));
+        local.put(userId, new Count(value, broadcastMark));
+    }
+
+    @Override
+    public void addIfPresent(String userId, long delta) {
+        Long count = redisTemplate.execute(ADD_IF_PRESENT_SCRIPT, Collections.singletonList(key(userId)),
+                String.valueOf(delta));
+        if (count == null || count < 0) {
+            local.remove(userId);
+        } else {
+            local.computeIfPresent(userId, current -> new Count(count, current.getBroadcastMark()));
+        }
+    }
+
+    @Override
+    public Long advanceIfPresent(String userId, long fromMark, long toMark, long delta) {
+        Long count = redisTemplate.execute(ADVANCE_IF_PRESENT_SCRIPT, Collections.singletonList(key(userId)),
+                String.valueOf(fromMark), String.valueOf(toMark), String.valueOf(delta));
+        local.remove(userId);
+        return count != null && count >= 0 ? count : null;
+    }
+
+    @Override
+    public void remove(String userId) {
+        redisTemplate.delete(key(userId));
+        local.remove(userId);
+    }
+
+    @Override
+    public Long getBroadcastMark() {
+        long now = System.currentTimeMillis();
+        if (localMark >= 0 && now - localMarkLoadedAt < localTtlMillis) {
+            return localMark;
+        }
+        String mark = redisTemplate.opsForValue().get(BROADCAST_MARK_KEY);
+        if (mark == null) {
+            return null;
+        }
+        localMark = Long.parseLong(mark);
+        localMarkLoadedAt = now;
+        return localMark;
+    }
+
+    @Override
+    public void advanceBroadcastMark(long broadcastId) {
+        redisTemplate.execute(ADVANCE_MARK_SCRIPT, Collections.singletonList(BROADCAST_MARK_KEY),
+                String.valueOf(broadcastId));
+        localMarkLoadedAt = 0;
+    }
+
+    @Override
+    public boolean tryAcquireReconcileLease(long leaseMillis) {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(RECONCILE_LEASE_KEY, leaseOwner,
+                Duration.ofMillis(leaseMillis));
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    @Override
+    public Set<String> userIds() {
+        Set<String> userIds = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match(COUNTER_KEY_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                userIds.add(cursor.next().substring(COUNTER_KEY_PREFIX.length()));
+            }
+        }
+        return userIds;
+    }
+
+    @Override
+    public long size() {
+        return local.size();
+    }
+
+    private static String key(String userId) {
+        return COUNTER_KEY_PREFIX + userId;
+    }
+}
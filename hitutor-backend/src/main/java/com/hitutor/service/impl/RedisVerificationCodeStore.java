@@ -0,0 +1,55 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.VerificationCodeStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+
+@Service
+@ConditionalOnProperty(name = "app.verification.store", havingValue = "redis")
+public class RedisVerificationCodeStore implements VerificationCodeStore {
+
+    private static final String KEY_PREFIX = "hitutor:verification:";
+
+    // 覆盖旧验证码并设置过期时间，键不会在没有 TTL 的状态下存在
+    private static final DefaultRedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], 'hash', ARGV[1], 'attempts', 0) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    // 比较、计数和删除在一个脚本内完成：同一验证码只有一个请求能通过；键已过期时直接失败，
+    // 不会由 HINCRBY 重新创建出没有 TTL 的键。比较的是摘要而不是明文验证码
+    private static final DefaultRedisScript<Long> VERIFY_SCRIPT = new DefaultRedisScript<>(
+            "local stored = redis.call('HGET', KEYS[1], 'hash') " +
+            "if not stored then return 0 end " +
+            "if stored == ARGV[1] then redis.call('DEL', KEYS[1]) return 1 end " +
+            "local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1) " +
+            "if attempts >= tonumber(ARGV[2]) then redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Override
+    public void save(String phone, String codeHash, long ttlMillis) {
+        redisTemplate.execute(SAVE_SCRIPT, Collections.singletonList(KEY_PREFIX + phone),
+                codeHash, String.valueOf(ttlMillis));
+    }
+
+    @Override
+    public boolean verify(String phone, String codeHash, int maxAttempts) {
+        Long verified = redisTemplate.execute(VERIFY_SCRIPT, Collections.singletonList(KEY_PREFIX + phone),
+                codeHash, String.valueOf(maxAttempts));
+        return verified != null && verified == 1;
+    }
+
+    @Override
+    public void invalidate(String phone) {
+        redisTemplate.delete(KEY_PREFIX + phone);
+    }
+}
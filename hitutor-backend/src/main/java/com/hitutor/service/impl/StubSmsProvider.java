@@ -0,0 +1,79 @@
+package com.hitutor.service.impl;
+
+import com.hitutor.service.SmsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内短信桩实现，供压测和 CI 使用：不发起网络请求，固定下发配置的验证码。
+ */
+@Service
+@ConditionalOnProperty(name = "app.sms.provider", havingValue = "stub")
+public class StubSmsProvider implements SmsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubSmsProvider.class);
+
+    @Value("${app.sms.stub.code:123456}")
+    private String stubCode;
+
+    @Value("${app.sms.stub.latency-ms:0}")
+    private long latencyMs;
+
+    private final Map<String, String> sentCodes = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    @Override
+    public void sendVerificationCode(String phone) {
+        if (phone == null || phone.isEmpty()) {
+            throw new IllegalArgumentException("发送验证码失败: 手机号不能为空");
+        }
+        simulateLatency();
+        sentCodes.put(phone, stubCode);
+        logger.debug("Stub SMS verification code sent to {}", phone);
+    }
+
+    @Override
+    public void sendCode(String phone, String code) {
+        if (phone == null || phone.isEmpty()) {
+            throw new IllegalArgumentException("发送验证码失败: 手机号不能为空");
+        }
+        simulateLatency();
+        sentCodes.put(phone, code);
+        logger.debug("Stub SMS code {} delivered to {}", code, phone);
+    }
+
+    /**
+     * 最近一次下发给该手机号的验证码，供集成测试读取。
+     */
+    public String getLastSentCode(String phone) {
+        return sentCodes.get(phone);
+    }
+
+    @Override
+    public boolean checkVerificationCode(String phone, String code) {
+        simulateLatency();
+        String expected = sentCodes.getOrDefault(phone, stubCode);
+        return expected.equals(code);
+    }
+
+    private void simulateLatency() {
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
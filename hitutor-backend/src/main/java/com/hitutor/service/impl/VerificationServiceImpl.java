@@ -1,90 +1,98 @@
 package com.hitutor.service.impl;
 
-import com.aliyuncs.CommonRequest;
-import com.aliyuncs.CommonResponse;
-import com.aliyuncs.DefaultAcsClient;
-import com.aliyuncs.IAcsClient;
-import com.aliyuncs.exceptions.ClientException;
-import com.aliyuncs.exceptions.ServerException;
-import com.aliyuncs.http.MethodType;
-import com.aliyuncs.profile.DefaultProfile;
+import com.hitutor.service.SmsGateway;
+import com.hitutor.service.VerificationCodeStore;
 import com.hitutor.service.VerificationService;
+import com.hitutor.util.Futures;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class VerificationServiceImpl implements VerificationService {
 
-    @Value("${aliyun.access-key-id}")
-    private String accessKeyId;
+    private static final String MODE_LOCAL = "local";
 
-    @Value("${aliyun.access-key-secret}")
-    private String accessKeySecret;
+    @Autowired
+    private SmsGateway smsGateway;
 
-    @Value("${aliyun.sms.sign-name}")
-    private String signName;
+    @Autowired
+    private VerificationCodeStore verificationCodeStore;
 
-    @Value("${aliyun.sms.template-code}")
-    private String templateCode;
+    @Value("${app.verification.mode:remote}")
+    private String mode;
 
-    private static final int CODE_EXPIRE_MIN = 5;
+    @Value("${app.verification.code-ttl-seconds:300}")
+    private long codeTtlSeconds;
 
-    @Override
-    public void sendVerificationCode(String phone) {
-        DefaultProfile profile = DefaultProfile.getProfile("cn-hangzhou", accessKeyId, accessKeySecret);
-        IAcsClient client = new DefaultAcsClient(profile);
+    @Value("${app.verification.max-attempts:5}")
+    private int maxAttempts;
 
-        String templateParam = String.format("{\"code\":\"##code##\",\"min\":\"%d\"}", CODE_EXPIRE_MIN);
+    private final SecureRandom secureRandom = new SecureRandom();
 
-        CommonRequest request = new CommonRequest();
-        request.setSysMethod(MethodType.POST);
-        request.setSysDomain("dypnsapi.aliyuncs.com");
-        request.setSysVersion("2017-05-25");
-        request.setSysAction("SendSmsVerifyCode");
-        request.putQueryParameter("PhoneNumber", phone);
-        request.putQueryParameter("SignName", signName);
-        request.putQueryParameter("TemplateCode", templateCode);
-        request.putQueryParameter("TemplateParam", templateParam);
-        request.putQueryParameter("CodeLength", "6"); // 设置验证码长度为6位
+    @Override
+    public void sendVerificationCode(String phone) {
+        join(sendVerificationCodeAsync(phone));
+    }
 
-        try {
-            CommonResponse response = client.getCommonResponse(request);
-            String data = response.getData();
-            if (data != null && data.contains("\"Code\":\"OK\"")) {
-                return;
-            } else {
-                throw new RuntimeException("发送验证码失败: " + data);
-            }
-        } catch (ServerException e) {
-            throw new RuntimeException("发送验证码失败: " + e.getErrCode() + " - " + e.getErrMsg());
-        } catch (ClientException e) {
-            throw new RuntimeException("发送验证码失败: " + e.getErrCode() + " - " + e.getErrMsg());
+    @Override
+    public CompletableFuture<Void> sendVerificationCodeAsync(String phone) {
+        if (!MODE_LOCAL.equals(mode)) {
+            return smsGateway.sendVerificationCode(phone);
+        }
+        if (phone == null || phone.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("手机号不能为空"));
         }
+        String code = String.format("%06d", secureRandom.nextInt(1_000_000));
+        verificationCodeStore.save(phone, hash(phone, code), codeTtlSeconds * 1000);
+        return smsGateway.sendCode(phone, code).whenComplete((ignored, e) -> {
+            if (e != null) {
+                verificationCodeStore.invalidate(phone);
+            }
+        });
     }
 
+    /**
+     * local 模式下验证码由服务端生成并保存在本地存储，校验不再调用短信服务商。
+     */
     @Override
     public boolean verifyCode(String phone, String code) {
-        DefaultProfile profile = DefaultProfile.getProfile("cn-hangzhou", accessKeyId, accessKeySecret);
-        IAcsClient client = new DefaultAcsClient(profile);
+        if (!MODE_LOCAL.equals(mode)) {
+            return join(smsGateway.checkVerificationCode(phone, code));
+        }
+        if (phone == null || code == null) {
+            return false;
+        }
+        return verificationCodeStore.verify(phone, hash(phone, code.trim()), maxAttempts);
+    }
 
-        CommonRequest request = new CommonRequest();
-        request.setSysMethod(MethodType.POST);
-        request.setSysDomain("dypnsapi.aliyuncs.com");
-        request.setSysVersion("2017-05-25");
-        request.setSysAction("CheckSmsVerifyCode");
-        request.putQueryParameter("PhoneNumber", phone);
-        request.putQueryParameter("VerifyCode", code);
+    private static String hash(String phone, String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest((phone + ":" + code).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 
+    private <T> T join(CompletableFuture<T> future) {
         try {
-            CommonResponse response = client.getCommonResponse(request);
-            String data = response.getData();
-            return data != null && data.contains("\"VerifyResult\":\"PASS\"");
-        } catch (ServerException e) {
-            throw new RuntimeException("验证码校验失败: " + e.getErrCode() + " - " + e.getErrMsg());
-        } catch (ClientException e) {
-            throw new RuntimeException("验证码校验失败: " + e.getErrCode() + " - " + e.getErrMsg());
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = Futures.unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
         }
     }
 }
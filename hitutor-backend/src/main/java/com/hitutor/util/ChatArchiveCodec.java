@@ -0,0 +1,45 @@
+package com.hitutor.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hitutor.document.ChatMessageBucket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 归档桶的编解码：消息列表序列化为 JSON 后 GZIP 压缩。
+ * 使用独立的 ObjectMapper，时间按数组形式保留到纳秒，避免全局日期格式截断毫秒影响排序。
+ */
+public final class ChatArchiveCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final TypeReference<List<ChatMessageBucket.Entry>> ENTRY_LIST = new TypeReference<>() {};
+
+    private ChatArchiveCodec() {}
+
+    public static byte[] encode(List<ChatMessageBucket.Entry> entries) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            MAPPER.writeValue(out, entries);
+        } catch (IOException e) {
+            throw new RuntimeException("归档数据压缩失败", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static List<ChatMessageBucket.Entry> decode(byte[] payload) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return MAPPER.readValue(in, ENTRY_LIST);
+        } catch (IOException e) {
+            throw new RuntimeException("归档数据解压失败", e);
+        }
+    }
+}
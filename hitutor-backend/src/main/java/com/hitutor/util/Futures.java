@@ -0,0 +1,19 @@
+package com.hitutor.util;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 异步结果的辅助方法：CompletableFuture 失败时异常会被 CompletionException/ExecutionException 包装一层。
+ */
+public final class Futures {
+
+    private Futures() {}
+
+    public static Throwable unwrap(Throwable e) {
+        if ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            return e.getCause();
+        }
+        return e;
+    }
+}
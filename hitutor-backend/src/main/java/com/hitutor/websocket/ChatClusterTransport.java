@@ -0,0 +1,32 @@
+package com.hitutor.websocket;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 集群投递通道：维护用户到节点的在线映射，并把投递请求转发到持有目标会话的节点。
+ */
+public interface ChatClusterTransport {
+
+    String getNodeId();
+
+    void registerPresence(String userId);
+
+    void unregisterPresence(String userId);
+
+    Set<String> getNodes(String userId);
+
+    Set<String> getOnlineUsers(Collection<String> userIds);
+
+    void recordLastSeen(String userId, long timestamp);
+
+    Map<String, Long> getLastSeen(Collection<String> userIds);
+
+    boolean publish(String nodeId, ClusterEnvelope envelope);
+
+    void setListener(Consumer<ClusterEnvelope> listener);
+
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,132 @@
+package com.hitutor.websocket;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只向消息相关用户的 /user 目的地投递，每条消息的扇出与在线连接总数无关。
+ * 目标用户连接在其他节点时，按在线映射把请求转发给对应节点，由其在本地投递。
+ */
+@Component
+public class ChatMessageRouter {
+
+    public static final String MESSAGES_DESTINATION = "/queue/messages";
+    public static final String ERRORS_DESTINATION = "/queue/errors";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageRouter.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ChatSessionRegistry sessionRegistry;
+
+    @Autowired
+    private ChatClusterTransport clusterTransport;
+
+    private final Map<String, DeliveryStats> statsByDestination = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        clusterTransport.setListener(this::deliverFromCluster);
+    }
+
+    public void deliver(String destination, Object payload, String... userIds) {
+        Set<String> targets = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (userId != null) {
+                targets.add(userId);
+            }
+        }
+        DeliveryStats stats = statsFor(destination);
+        Map<String, List<String>> remoteTargets = new HashMap<>();
+        for (String userId : targets) {
+            boolean local = sessionRegistry.isOnline(userId);
+            if (local) {
+                sendLocal(destination, payload, userId, stats);
+            }
+            boolean remote = false;
+            for (String node : clusterTransport.getNodes(userId)) {
+                if (!node.equals(clusterTransport.getNodeId())) {
+                    remoteTargets.computeIfAbsent(node, key -> new ArrayList<>()).add(userId);
+                    remote = true;
+                }
+            }
+            if (!local && !remote) {
+                stats.skippedOffline.increment();
+            }
+        }
+        remoteTargets.forEach((node, users) -> {
+            ClusterEnvelope envelope = new ClusterEnvelope(clusterTransport.getNodeId(), destination, users, payload);
+            if (clusterTransport.publish(node, envelope)) {
+                stats.forwarded.add(users.size());
+            } else {
+                stats.failed.add(users.size());
+            }
+        });
+    }
+
+    private void deliverFromCluster(ClusterEnvelope envelope) {
+        DeliveryStats stats = statsFor(envelope.getDestination());
+        for (String userId : envelope.getUserIds()) {
+            if (sessionRegistry.isOnline(userId)) {
+                sendLocal(envelope.getDestination(), envelope.getPayload(), userId, stats);
+            } else {
+                stats.skippedOffline.increment();
+            }
+        }
+    }
+
+    private void sendLocal(String destination, Object payload, String userId, DeliveryStats stats) {
+        try {
+            messagingTemplate.convertAndSendToUser(userId, destination, payload);
+            stats.delivered.increment();
+        } catch (MessagingException e) {
+            stats.failed.increment();
+            logger.warn("Failed to deliver to user {} at {}: {}", userId, destination, e.getMessage());
+        }
+    }
+
+    private DeliveryStats statsFor(String destination) {
+        return statsByDestination.computeIfAbsent(destination, key -> new DeliveryStats());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> destinations = new HashMap<>();
+        statsByDestination.forEach((destination, stats) -> destinations.put(destination, stats.toMap()));
+        Map<String, Object> result = new HashMap<>(sessionRegistry.getStats());
+        result.put("destinations", destinations);
+        result.put("cluster", clusterTransport.getStats());
+        return result;
+    }
+
+    private static class DeliveryStats {
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder forwarded = new LongAdder();
+        private final LongAdder skippedOffline = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("delivered", delivered.sum());
+            map.put("forwarded", forwarded.sum());
+            map.put("skippedOffline", skippedOffline.sum());
+            map.put("failed", failed.sum());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.hitutor.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录本节点上每个用户的 STOMP 会话；用户的首个会话建立或最后一个会话断开时同步更新集群在线映射。
+ */
+@Component
+public class ChatSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSessionRegistry.class);
+
+    @Autowired
+    private ChatClusterTransport clusterTransport;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<String, String> userBySession = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+        if (user == null || sessionId == null) {
+            return;
+        }
+        register(user.getName(), sessionId);
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        unregister(event.getSessionId());
+    }
+
+    /**
+     * 集群在线映射的更新放在 compute 内，按变更后的会话数决定，同一用户的注册和注销串行执行，
+     * 快速重连时旧会话的注销不会晚于新会话的注册而把用户从集群中移除。
+     */
+    public void register(String userId, String sessionId) {
+        userBySession.put(sessionId, userId);
+        sessionsByUser.compute(userId, (key, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+            }
+            if (sessions.add(sessionId) && sessions.size() == 1) {
+                onFirstSession(userId);
+            }
+            return sessions;
+        });
+    }
+
+    public void unregister(String sessionId) {
+        String userId = userBySession.remove(sessionId);
+        if (userId == null) {
+            return;
+        }
+        sessionsByUser.computeIfPresent(userId, (key, sessions) -> {
+            if (!sessions.remove(sessionId) || !sessions.isEmpty()) {
+                return sessions;
+            }
+            onLastSession(userId);
+            return null;
+        });
+    }
+
+    // 集群映射更新失败只记录，不影响本节点的会话登记；映射由下次上线或下线时修正
+    private void onFirstSession(String userId) {
+        try {
+            boolean onlineElsewhere = isOnlineOnOtherNodes(userId);
+            clusterTransport.registerPresence(userId);
+            if (!onlineElsewhere) {
+                eventPublisher.publishEvent(new PresenceChangedEvent(userId, true, System.currentTimeMillis()));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to register cluster presence for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void onLastSession(String userId) {
+        long now = System.currentTimeMillis();
+        try {
+            clusterTransport.unregisterPresence(userId);
+            clusterTransport.recordLastSeen(userId, now);
+            if (!isOnlineOnOtherNodes(userId)) {
+                eventPublisher.publishEvent(new PresenceChangedEvent(userId, false, now));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to unregister cluster presence for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    public boolean isOnline(String userId) {
+        return sessionsByUser.containsKey(userId);
+    }
+
+    public Set<String> getSessions(String userId) {
+        Set<String> sessions = sessionsByUser.get(userId);
+        return sessions != null ? Collections.unmodifiableSet(sessions) : Collections.emptySet();
+    }
+
+    public String getUserId(String sessionId) {
+        return userBySession.get(sessionId);
+    }
+
+    private boolean isOnlineOnOtherNodes(String userId) {
+        for (String node : clusterTransport.getNodes(userId)) {
+            if (!node.equals(clusterTransport.getNodeId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("onlineUsers", sessionsByUser.size());
+        stats.put("sessions", userBySession.size());
+        return stats;
+    }
+}
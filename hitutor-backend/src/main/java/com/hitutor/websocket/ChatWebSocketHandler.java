@@ -2,25 +2,23 @@ package com.hitutor.websocket;
 
 import com.hitutor.document.ChatMessage;
 import com.hitutor.entity.Conversation;
-import com.hitutor.repository.ChatMessageRepository;
 import com.hitutor.service.BlacklistService;
+import com.hitutor.service.ChatMessageService;
+import com.hitutor.service.ConversationActivityService;
 import com.hitutor.service.ConversationService;
 import com.hitutor.service.UserService;
+import com.hitutor.util.Futures;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.util.HashMap;
 import java.util.Map;
 
 @Controller
 public class ChatWebSocketHandler {
 
-    @Autowired
-    private ChatMessageRepository chatMessageRepository;
-
     @Autowired
     private ConversationService conversationService;
 
@@ -31,35 +29,43 @@ public class ChatWebSocketHandler {
     private UserService userService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ChatMessageRouter chatMessageRouter;
+
+    @Autowired
+    private ChatMessageService chatMessageService;
+
+    @Autowired
+    private ConversationActivityService conversationActivityService;
 
     @MessageMapping("/chat/send")
-    @SendTo("/topic/messages")
-    public Map<String, Object> sendMessage(Map<String, Object> messageData) {
-        String senderId = (String) messageData.get("senderId");
+    public void sendMessage(Map<String, Object> messageData, Principal principal) {
+        String senderId = principal.getName();
         String receiverId = (String) messageData.get("receiverId");
         String content = (String) messageData.get("content");
         String messageType = (String) messageData.getOrDefault("messageType", "text");
 
         Map<String, Object> response = new HashMap<>();
 
-        if (senderId == null || receiverId == null || content == null) {
+        if (receiverId == null || content == null) {
             response.put("success", false);
             response.put("message", "参数不完整");
-            return response;
+            chatMessageRouter.deliver(ChatMessageRouter.ERRORS_DESTINATION, response, senderId);
+            return;
         }
 
         if (blacklistService.isBlocked(senderId, receiverId)) {
             response.put("success", false);
             response.put("message", "您已被对方拉黑，无法发送消息");
-            return response;
+            chatMessageRouter.deliver(ChatMessageRouter.ERRORS_DESTINATION, response, senderId);
+            return;
         }
 
         Conversation conversation = conversationService.getOrCreateConversation(senderId, receiverId);
         if (conversation == null) {
             response.put("success", false);
             response.put("message", "会话创建失败");
-            return response;
+            chatMessageRouter.deliver(ChatMessageRouter.ERRORS_DESTINATION, response, senderId);
+            return;
         }
 
         ChatMessage chatMessage = new ChatMessage(
@@ -70,47 +76,47 @@ public class ChatWebSocketHandler {
             messageType
         );
 
-        chatMessage = chatMessageRepository.save(chatMessage);
-
-        conversation.setLastMessageTime(chatMessage.getCreateTime());
-        conversationService.updateConversation(conversation);
-
-        Map<String, Object> messageMap = new HashMap<>();
-        messageMap.put("id", chatMessage.getId());
-        messageMap.put("conversationId", chatMessage.getConversationId());
-        messageMap.put("senderId", chatMessage.getSenderId());
-        messageMap.put("receiverId", chatMessage.getReceiverId());
-        messageMap.put("content", chatMessage.getContent());
-        messageMap.put("messageType", chatMessage.getMessageType());
-        messageMap.put("isRead", chatMessage.getIsRead());
-        messageMap.put("createTime", chatMessage.getCreateTime());
-
-        response.put("success", true);
-        response.put("message", "消息发送成功");
-        response.put("data", messageMap);
-
-        messagingTemplate.convertAndSendToUser(
-            receiverId,
-            "/queue/messages",
-            response
-        );
-
-        return response;
+        Long conversationId = conversation.getId();
+        Object clientMessageId = messageData.get("clientMessageId");
+        // 入站线程只负责入队，写入成功后才向双方推送，发送方据此确认消息已持久化
+        chatMessageService.sendMessage(chatMessage).whenComplete((saved, error) -> {
+            Map<String, Object> result = new HashMap<>();
+            if (clientMessageId != null) {
+                result.put("clientMessageId", clientMessageId);
+            }
+            if (error != null) {
+                result.put("success", false);
+                result.put("message", Futures.unwrap(error).getMessage());
+                chatMessageRouter.deliver(ChatMessageRouter.ERRORS_DESTINATION, result, senderId);
+                return;
+            }
+
+            conversationActivityService.recordActivity(conversationId, saved.getCreateTime());
+
+            Map<String, Object> messageMap = new HashMap<>();
+            messageMap.put("id", saved.getId());
+            messageMap.put("conversationId", saved.getConversationId());
+            messageMap.put("senderId", saved.getSenderId());
+            messageMap.put("receiverId", saved.getReceiverId());
+            messageMap.put("content", saved.getContent());
+            messageMap.put("messageType", saved.getMessageType());
+            messageMap.put("isRead", saved.getIsRead());
+            messageMap.put("createTime", saved.getCreateTime());
+
+            result.put("success", true);
+            result.put("message", "消息发送成功");
+            result.put("data", messageMap);
+
+            chatMessageRouter.deliver(ChatMessageRouter.MESSAGES_DESTINATION, result, senderId, receiverId);
+        });
     }
 
     @MessageMapping("/chat/read")
-    public void markAsRead(Map<String, Object> messageData) {
+    public void markAsRead(Map<String, Object> messageData, Principal principal) {
         String conversationId = (String) messageData.get("conversationId");
-        String userId = (String) messageData.get("userId");
-
-        if (conversationId != null && userId != null) {
-            chatMessageRepository.findByConversationIdOrderByCreateTimeAsc(conversationId)
-                .stream()
-                .filter(msg -> msg.getReceiverId().equals(userId) && !msg.getIsRead())
-                .forEach(msg -> {
-                    msg.setIsRead(true);
-                    chatMessageRepository.save(msg);
-                });
+
+        if (conversationId != null) {
+            chatMessageService.markAsRead(conversationId, principal.getName());
         }
     }
 }
@@ -0,0 +1,55 @@
+package com.hitutor.websocket;
+
+import java.util.List;
+
+/**
+ * 节点间转发的投递请求：目标用户、目的地和消息体。
+ */
+public class ClusterEnvelope {
+
+    private String sourceNode;
+    private String destination;
+    private List<String> userIds;
+    private Object payload;
+
+    public ClusterEnvelope() {}
+
+    public ClusterEnvelope(String sourceNode, String destination, List<String> userIds, Object payload) {
+        this.sourceNode = sourceNode;
+        this.destination = destination;
+        this.userIds = userIds;
+        this.payload = payload;
+    }
+
+    public String getSourceNode() {
+        return sourceNode;
+    }
+
+    public void setSourceNode(String sourceNode) {
+        this.sourceNode = sourceNode;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public List<String> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<String> userIds) {
+        this.userIds = userIds;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    public void setPayload(Object payload) {
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,79 @@
+package com.hitutor.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 紧凑编码 compact-v1：聊天载荷中的常用字段名替换为短键，值保持不变，字典外的字段原样保留。
+ * 客户端在 STOMP CONNECT 帧中携带 x-encoding:compact-v1 协商，服务端对改写过的 MESSAGE 帧带同名头。
+ */
+public final class CompactEncoding {
+
+    public static final String HEADER = "x-encoding";
+    public static final String NAME = "compact-v1";
+
+    private static final Map<String, String> SHORT_KEYS;
+    private static final Map<String, String> FULL_KEYS;
+
+    static {
+        Map<String, String> keys = new LinkedHashMap<>();
+        keys.put("success", "s");
+        keys.put("message", "m");
+        keys.put("data", "d");
+        keys.put("id", "i");
+        keys.put("conversationId", "c");
+        keys.put("senderId", "f");
+        keys.put("receiverId", "r");
+        keys.put("content", "b");
+        keys.put("messageType", "t");
+        keys.put("isRead", "rd");
+        keys.put("createTime", "ct");
+        keys.put("clientMessageId", "k");
+        SHORT_KEYS = Collections.unmodifiableMap(keys);
+        Map<String, String> reverse = new HashMap<>();
+        keys.forEach((full, shortKey) -> reverse.put(shortKey, full));
+        FULL_KEYS = Collections.unmodifiableMap(reverse);
+    }
+
+    private CompactEncoding() {}
+
+    public static Map<String, String> dictionary() {
+        return SHORT_KEYS;
+    }
+
+    public static JsonNode compact(JsonNode node) {
+        return rename(node, SHORT_KEYS);
+    }
+
+    public static JsonNode expand(JsonNode node) {
+        return rename(node, FULL_KEYS);
+    }
+
+    private static JsonNode rename(JsonNode node, Map<String, String> keys) {
+        if (node.isObject()) {
+            ObjectNode source = (ObjectNode) node;
+            ObjectNode target = source.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                target.set(keys.getOrDefault(field.getKey(), field.getKey()), rename(field.getValue(), keys));
+            }
+            return target;
+        }
+        if (node.isArray()) {
+            ArrayNode target = ((ArrayNode) node).arrayNode();
+            for (JsonNode item : node) {
+                target.add(rename(item, keys));
+            }
+            return target;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,40 @@
+package com.hitutor.websocket;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 控制是否接受客户端请求的 permessage-deflate 扩展。Tomcat 默认支持该扩展，
+ * 关闭时在握手阶段将其从协商结果中移除。
+ */
+public class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+
+    private static final String DEFLATE_EXTENSION = "permessage-deflate";
+
+    private final boolean deflateEnabled;
+
+    public CompressionHandshakeHandler(boolean deflateEnabled) {
+        this.deflateEnabled = deflateEnabled;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        if (deflateEnabled) {
+            return accepted;
+        }
+        List<WebSocketExtension> filtered = new ArrayList<>(accepted.size());
+        for (WebSocketExtension extension : accepted) {
+            if (!DEFLATE_EXTENSION.equals(extension.getName())) {
+                filtered.add(extension);
+            }
+        }
+        return filtered;
+    }
+}
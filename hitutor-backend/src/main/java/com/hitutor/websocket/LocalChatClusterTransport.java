@@ -0,0 +1,123 @@
+package com.hitutor.websocket;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的集群替身：同一 JVM 中启动的多个应用上下文共享静态的节点表和在线映射，
+ * 用于在单机上跑多实例集成测试；单实例部署时等价于纯本地投递。
+ */
+@Component
+@ConditionalOnProperty(name = "app.chat.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class LocalChatClusterTransport implements ChatClusterTransport {
+
+    private static final Map<String, Consumer<ClusterEnvelope>> NODES = new ConcurrentHashMap<>();
+    private static final Map<String, Set<String>> PRESENCE = new ConcurrentHashMap<>();
+    private static final Map<String, Long> LAST_SEEN = new ConcurrentHashMap<>();
+
+    private final String nodeId;
+    private final Set<String> localUsers = ConcurrentHashMap.newKeySet();
+
+    public LocalChatClusterTransport(@Value("${app.chat.cluster.node-id:}") String nodeId) {
+        this.nodeId = nodeId == null || nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void registerPresence(String userId) {
+        localUsers.add(userId);
+        PRESENCE.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(nodeId);
+    }
+
+    @Override
+    public void unregisterPresence(String userId) {
+        localUsers.remove(userId);
+        PRESENCE.computeIfPresent(userId, (key, nodes) -> {
+            nodes.remove(nodeId);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+
+    @Override
+    public Set<String> getNodes(String userId) {
+        Set<String> nodes = PRESENCE.get(userId);
+        return nodes != null ? new HashSet<>(nodes) : Collections.emptySet();
+    }
+
+    @Override
+    public Set<String> getOnlineUsers(Collection<String> userIds) {
+        Set<String> online = new HashSet<>();
+        for (String userId : userIds) {
+            if (PRESENCE.containsKey(userId)) {
+                online.add(userId);
+            }
+        }
+        return online;
+    }
+
+    @Override
+    public void recordLastSeen(String userId, long timestamp) {
+        LAST_SEEN.merge(userId, timestamp, Math::max);
+    }
+
+    @Override
+    public Map<String, Long> getLastSeen(Collection<String> userIds) {
+        Map<String, Long> result = new HashMap<>();
+        for (String userId : userIds) {
+            Long lastSeen = LAST_SEEN.get(userId);
+            if (lastSeen != null) {
+                result.put(userId, lastSeen);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean publish(String targetNode, ClusterEnvelope envelope) {
+        Consumer<ClusterEnvelope> listener = NODES.get(targetNode);
+        if (listener == null) {
+            return false;
+        }
+        listener.accept(envelope);
+        return true;
+    }
+
+    @Override
+    public void setListener(Consumer<ClusterEnvelope> listener) {
+        NODES.put(nodeId, listener);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", "local");
+        stats.put("nodeId", nodeId);
+        stats.put("nodes", NODES.size());
+        stats.put("localUsers", localUsers.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        NODES.remove(nodeId);
+        for (String userId : localUsers) {
+            unregisterPresence(userId);
+        }
+    }
+}
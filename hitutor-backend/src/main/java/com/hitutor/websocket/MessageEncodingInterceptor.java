@@ -0,0 +1,87 @@
+package com.hitutor.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 紧凑编码的协商和转换，同时注册在入站和出站通道上：
+ * CONNECT 帧的 x-encoding 头决定会话编码；紧凑会话发来的 SEND 帧展开为完整字段名，
+ * 发往该会话的 MESSAGE 帧改写为短键并带上 x-encoding 头。
+ */
+@Component
+public class MessageEncodingInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageEncodingInterceptor.class);
+
+    // 独立的 ObjectMapper 只做树的读写，不受全局日期格式影响
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private WebSocketTrafficMonitor trafficMonitor;
+
+    @Value("${app.websocket.compact-encoding.enabled:true}")
+    private boolean compactEnabled;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!compactEnabled) {
+            return message;
+        }
+        StompCommand command = StompHeaderAccessor.getCommand(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (command == StompCommand.CONNECT || command == StompCommand.STOMP) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+            if (CompactEncoding.NAME.equals(accessor.getFirstNativeHeader(CompactEncoding.HEADER))) {
+                trafficMonitor.setEncoding(sessionId, CompactEncoding.NAME);
+            }
+            return message;
+        }
+        if (!trafficMonitor.isCompact(sessionId) || !(message.getPayload() instanceof byte[])) {
+            return message;
+        }
+        byte[] payload = (byte[]) message.getPayload();
+        if (command == StompCommand.SEND) {
+            return rewrite(message, payload, false);
+        }
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            return rewrite(message, payload, true);
+        }
+        return message;
+    }
+
+    private Message<?> rewrite(Message<?> message, byte[] payload, boolean outbound) {
+        if (payload.length == 0 || (payload[0] != '{' && payload[0] != '[')) {
+            return message;
+        }
+        try {
+            JsonNode tree = MAPPER.readTree(payload);
+            if (!outbound) {
+                return MessageBuilder.createMessage(MAPPER.writeValueAsBytes(CompactEncoding.expand(tree)),
+                        message.getHeaders());
+            }
+            byte[] encoded = MAPPER.writeValueAsBytes(CompactEncoding.compact(tree));
+            trafficMonitor.recordCompaction(payload.length, encoded.length);
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            accessor.setNativeHeader(CompactEncoding.HEADER, CompactEncoding.NAME);
+            return MessageBuilder.createMessage(encoded, accessor.getMessageHeaders());
+        } catch (IOException e) {
+            logger.debug("Skipped compact encoding for non-JSON payload: {}", e.getMessage());
+            return message;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.hitutor.websocket;
+
+/**
+ * 用户上线或下线时发布的轻量事件：用户在任一节点的首个会话建立或最后一个会话断开时触发。
+ */
+public class PresenceChangedEvent {
+
+    private final String userId;
+    private final boolean online;
+    private final long timestamp;
+
+    public PresenceChangedEvent(String userId, boolean online, long timestamp) {
+        this.userId = userId;
+        this.online = online;
+        this.timestamp = timestamp;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
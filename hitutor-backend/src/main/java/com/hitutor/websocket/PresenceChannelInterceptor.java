@@ -0,0 +1,30 @@
+package com.hitutor.websocket;
+
+import com.hitutor.service.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * 已认证会话的任何入站帧（包括 STOMP 心跳）都刷新该用户的最近活跃时间。
+ */
+@Component
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        if (user != null) {
+            presenceService.touch(user.getName());
+        }
+        return message;
+    }
+}
@@ -0,0 +1,235 @@
+package com.hitutor.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis 的集群投递：每个节点订阅自己的频道，用户在线映射存放在
+ * hitutor:chat:presence:{userId} 有序集合中（成员为节点 ID，分数为过期时间），
+ * 节点定期续期，宕机节点的条目到期后自动失效。
+ */
+@Component
+@ConditionalOnProperty(name = "app.chat.cluster.mode", havingValue = "redis")
+public class RedisChatClusterTransport implements ChatClusterTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisChatClusterTransport.class);
+
+    private static final String PRESENCE_PREFIX = "hitutor:chat:presence:";
+    private static final String CHANNEL_PREFIX = "hitutor:chat:node:";
+    private static final String LAST_SEEN_KEY = "hitutor:chat:last-seen";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String nodeId;
+    private final long presenceTtlMs;
+    private final Set<String> localUsers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile Consumer<ClusterEnvelope> listener;
+    private RedisMessageListenerContainer container;
+
+    public RedisChatClusterTransport(@Value("${app.chat.cluster.node-id:}") String nodeId,
+                                     @Value("${app.chat.cluster.presence-ttl-ms:90000}") long presenceTtlMs) {
+        this.nodeId = nodeId == null || nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+        this.presenceTtlMs = presenceTtlMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisTemplate.getConnectionFactory());
+        container.addMessageListener((message, pattern) -> onMessage(message.getBody()),
+                new ChannelTopic(CHANNEL_PREFIX + nodeId));
+        container.afterPropertiesSet();
+        container.start();
+        logger.info("Chat cluster node {} subscribed to Redis", nodeId);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void registerPresence(String userId) {
+        localUsers.add(userId);
+        touchPresence(userId);
+    }
+
+    @Override
+    public void unregisterPresence(String userId) {
+        localUsers.remove(userId);
+        redisTemplate.opsForZSet().remove(PRESENCE_PREFIX + userId, nodeId);
+    }
+
+    @Override
+    public Set<String> getNodes(String userId) {
+        Set<String> nodes = redisTemplate.opsForZSet()
+                .rangeByScore(PRESENCE_PREFIX + userId, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        return nodes != null ? new HashSet<>(nodes) : Collections.emptySet();
+    }
+
+    /**
+     * 批量查询时用一次管道往返取回所有用户的有效节点数。
+     */
+    @Override
+    public Set<String> getOnlineUsers(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<String> ids = new ArrayList<>(userIds);
+        double now = System.currentTimeMillis();
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String userId : ids) {
+                stringConnection.zCount(PRESENCE_PREFIX + userId, now, Double.POSITIVE_INFINITY);
+            }
+            return null;
+        });
+        Set<String> online = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object count = counts.get(i);
+            if (count instanceof Long && (Long) count > 0) {
+                online.add(ids.get(i));
+            }
+        }
+        return online;
+    }
+
+    @Override
+    public void recordLastSeen(String userId, long timestamp) {
+        redisTemplate.opsForHash().put(LAST_SEEN_KEY, userId, String.valueOf(timestamp));
+    }
+
+    @Override
+    public Map<String, Long> getLastSeen(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Object> ids = new ArrayList<>(userIds);
+        List<Object> values = redisTemplate.opsForHash().multiGet(LAST_SEEN_KEY, ids);
+        Map<String, Long> result = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                result.put((String) ids.get(i), Long.parseLong(value.toString()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean publish(String targetNode, ClusterEnvelope envelope) {
+        try {
+            Long receivers = redisTemplate.convertAndSend(CHANNEL_PREFIX + targetNode,
+                    objectMapper.writeValueAsString(envelope));
+            published.incrementAndGet();
+            return receivers != null && receivers > 0;
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.warn("Failed to publish chat envelope to node {}: {}", targetNode, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void setListener(Consumer<ClusterEnvelope> listener) {
+        this.listener = listener;
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.cluster.presence-refresh-ms:30000}")
+    public void refreshPresence() {
+        for (String userId : localUsers) {
+            try {
+                touchPresence(userId);
+            } catch (Exception e) {
+                logger.warn("Failed to refresh presence for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", "redis");
+        stats.put("nodeId", nodeId);
+        stats.put("localUsers", localUsers.size());
+        stats.put("published", published.get());
+        stats.put("received", received.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String userId : localUsers) {
+            try {
+                unregisterPresence(userId);
+            } catch (Exception e) {
+                logger.warn("Failed to clear presence for user {}: {}", userId, e.getMessage());
+            }
+        }
+        if (container != null) {
+            try {
+                container.destroy();
+            } catch (Exception e) {
+                logger.warn("Failed to stop Redis listener container: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void touchPresence(String userId) {
+        String key = PRESENCE_PREFIX + userId;
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(key, nodeId, now + presenceTtlMs);
+        redisTemplate.opsForZSet().removeRangeByScore(key, 0, now);
+        redisTemplate.expire(key, Duration.ofMillis(presenceTtlMs));
+    }
+
+    private void onMessage(byte[] body) {
+        Consumer<ClusterEnvelope> current = listener;
+        if (current == null) {
+            return;
+        }
+        try {
+            received.incrementAndGet();
+            current.accept(objectMapper.readValue(body, ClusterEnvelope.class));
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.warn("Failed to handle chat envelope: {}", e.getMessage());
+        }
+    }
+}
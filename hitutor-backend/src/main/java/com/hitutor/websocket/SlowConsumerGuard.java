@@ -0,0 +1,210 @@
+package com.hitutor.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 慢消费者保护：出站通道上按会话统计已入队未写出的帧数
+ * （出站线程池排队 + ConcurrentWebSocketSessionDecorator 缓冲），超过 max-pending 后按策略处理：
+ * drop 丢弃新的 MESSAGE 帧，disconnect 直接关闭会话。
+ * 传输层的 send-time-limit / send-buffer-size-limit 仍作为最后的兜底。
+ */
+@Component
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowConsumerGuard.class);
+
+    private static final int TOP_SESSIONS = 10;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${app.websocket.slow-consumer.max-pending:200}")
+    private int maxPending;
+
+    @Value("${app.websocket.slow-consumer.policy:drop}")
+    private String policy;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+    private final AtomicLong maxObservedPending = new AtomicLong();
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionState state = new SessionState(session);
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new CountingSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionState state = sessionId != null ? sessions.get(sessionId) : null;
+        if (state == null) {
+            return message;
+        }
+        long pending = state.pending();
+        if (pending >= maxPending
+                && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            if ("disconnect".equalsIgnoreCase(policy)) {
+                disconnect(state);
+            }
+            dropped.incrementAndGet();
+            return null;
+        }
+        state.pending.incrementAndGet();
+        maxObservedPending.accumulateAndGet(pending + 1, Math::max);
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (sent && ex == null) {
+            return;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionState state = sessionId != null ? sessions.get(sessionId) : null;
+        if (state != null) {
+            state.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        List<SessionState> states = new ArrayList<>(sessions.values());
+        long totalPending = 0;
+        for (SessionState state : states) {
+            totalPending += state.pending();
+        }
+        states.sort(Comparator.comparingLong(SessionState::pending).reversed());
+        List<Map<String, Object>> deepest = new ArrayList<>();
+        for (SessionState state : states.subList(0, Math.min(TOP_SESSIONS, states.size()))) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("sessionId", state.session.getId());
+            item.put("pending", state.pending());
+            item.put("sent", state.sent.get());
+            deepest.add(item);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", states.size());
+        stats.put("totalPending", totalPending);
+        stats.put("maxObservedPending", maxObservedPending.get());
+        stats.put("maxPending", maxPending);
+        stats.put("policy", policy);
+        stats.put("dropped", dropped.get());
+        stats.put("disconnected", disconnected.get());
+        stats.put("deepestSessions", deepest);
+        stats.put("inboundExecutor", executorStats("clientInboundChannelExecutor"));
+        stats.put("outboundExecutor", executorStats("clientOutboundChannelExecutor"));
+        return stats;
+    }
+
+    private void disconnect(SessionState state) {
+        if (!state.closing.compareAndSet(false, true)) {
+            return;
+        }
+        disconnected.incrementAndGet();
+        logger.warn("Closing slow WebSocket session {} with {} pending frames", state.session.getId(), state.pending());
+        try {
+            state.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            logger.warn("Failed to close slow WebSocket session {}: {}", state.session.getId(), e.getMessage());
+        }
+    }
+
+    private Map<String, Object> executorStats(String beanName) {
+        Map<String, Object> map = new HashMap<>();
+        if (!applicationContext.containsBean(beanName)) {
+            return map;
+        }
+        ThreadPoolTaskExecutor executor = applicationContext.getBean(beanName, ThreadPoolTaskExecutor.class);
+        map.put("poolSize", executor.getPoolSize());
+        map.put("activeCount", executor.getActiveCount());
+        map.put("corePoolSize", executor.getCorePoolSize());
+        map.put("maxPoolSize", executor.getMaxPoolSize());
+        if (executor.getThreadPoolExecutor() != null) {
+            map.put("queued", executor.getThreadPoolExecutor().getQueue().size());
+            map.put("remainingCapacity", executor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        }
+        return map;
+    }
+
+    private static class SessionState {
+        private final WebSocketSession session;
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicBoolean closing = new AtomicBoolean();
+
+        SessionState(WebSocketSession session) {
+            this.session = session;
+        }
+
+        long pending() {
+            return pending.get();
+        }
+
+        // 协议层直接写出的帧（如 ERROR）不经过出站通道，计数不低于 0
+        void release() {
+            pending.updateAndGet(value -> value > 0 ? value - 1 : 0);
+        }
+    }
+
+    /**
+     * 位于 SubProtocolWebSocketHandler 的并发装饰器之下，sendMessage 被调用即表示帧真正写出。
+     */
+    private static class CountingSession extends WebSocketSessionDecorator {
+        private final SessionState state;
+
+        CountingSession(WebSocketSession session, SessionState state) {
+            super(session);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            state.sent.incrementAndGet();
+            state.release();
+        }
+    }
+}
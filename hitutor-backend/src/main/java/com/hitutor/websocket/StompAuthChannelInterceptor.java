@@ -0,0 +1,74 @@
+package com.hitutor.websocket;
+
+import com.hitutor.service.TokenRevocationService;
+import com.hitutor.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * 在 STOMP CONNECT 帧上校验 JWT，并把用户 ID 绑定为会话 Principal，供 /user 目的地路由使用。
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String token = resolveToken(accessor);
+        if (token == null) {
+            throw new MessageDeliveryException("未认证的 WebSocket 连接");
+        }
+        try {
+            Claims claims = jwtUtil.getClaimsFromToken(token);
+            if (tokenRevocationService.isRevoked(claims) || !jwtUtil.validateAccessToken(token)) {
+                throw new MessageDeliveryException("令牌无效或已过期");
+            }
+            String role = claims.get("role", String.class);
+            accessor.setUser(new UsernamePasswordAuthenticationToken(claims.getSubject(), null,
+                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))));
+        } catch (MessageDeliveryException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.debug("Rejected STOMP connect: {}", e.getMessage());
+            throw new MessageDeliveryException("令牌无效或已过期");
+        }
+        return message;
+    }
+
+    private String resolveToken(StompHeaderAccessor accessor) {
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header == null) {
+            header = accessor.getFirstNativeHeader("token");
+        }
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        return header.startsWith("Bearer ") ? header.substring(7) : header;
+    }
+}
@@ -0,0 +1,235 @@
+package com.hitutor.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * 按会话统计 WebSocket 收发的帧数和载荷字节数，并记录协商结果（permessage-deflate、紧凑编码）。
+ * 字节数为压缩前的应用层载荷；按 deflate-sample-rate 抽样压缩出站帧，估算 deflate 后的线上字节。
+ */
+@Component
+public class WebSocketTrafficMonitor implements WebSocketHandlerDecoratorFactory {
+
+    private static final String DEFLATE_EXTENSION = "permessage-deflate";
+    private static final String DEFAULT_ENCODING = "json";
+    private static final int TOP_SESSIONS = 10;
+
+    @Value("${app.websocket.traffic.deflate-sample-rate:0.01}")
+    private double deflateSampleRate;
+
+    private final Map<String, SessionTraffic> sessions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> bytesOutByEncoding = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> framesOutByEncoding = new ConcurrentHashMap<>();
+
+    private final AtomicLong compactOriginalBytes = new AtomicLong();
+    private final AtomicLong compactEncodedBytes = new AtomicLong();
+    private final AtomicLong sampledBytes = new AtomicLong();
+    private final AtomicLong sampledDeflatedBytes = new AtomicLong();
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionTraffic traffic = new SessionTraffic(session.getId(), isDeflateNegotiated(session));
+                sessions.put(session.getId(), traffic);
+                super.afterConnectionEstablished(new MeteredSession(session, traffic));
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                SessionTraffic traffic = sessions.get(session.getId());
+                if (traffic != null) {
+                    traffic.framesIn.incrementAndGet();
+                    traffic.bytesIn.addAndGet(message.getPayloadLength());
+                }
+                super.handleMessage(session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public void setEncoding(String sessionId, String encoding) {
+        SessionTraffic traffic = sessions.get(sessionId);
+        if (traffic != null) {
+            traffic.encoding = encoding;
+        }
+    }
+
+    public boolean isCompact(String sessionId) {
+        SessionTraffic traffic = sessionId != null ? sessions.get(sessionId) : null;
+        return traffic != null && CompactEncoding.NAME.equals(traffic.encoding);
+    }
+
+    public void recordCompaction(int originalBytes, int encodedBytes) {
+        compactOriginalBytes.addAndGet(originalBytes);
+        compactEncodedBytes.addAndGet(encodedBytes);
+    }
+
+    public Map<String, Object> getStats() {
+        List<SessionTraffic> all = new ArrayList<>(sessions.values());
+        long deflateSessions = 0;
+        Map<String, Long> sessionsByEncoding = new HashMap<>();
+        for (SessionTraffic traffic : all) {
+            if (traffic.deflate) {
+                deflateSessions++;
+            }
+            sessionsByEncoding.merge(traffic.encoding, 1L, Long::sum);
+        }
+        all.sort(Comparator.comparingLong((SessionTraffic traffic) -> traffic.bytesOut.get()).reversed());
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (SessionTraffic traffic : all.subList(0, Math.min(TOP_SESSIONS, all.size()))) {
+            top.add(traffic.toMap());
+        }
+
+        Map<String, Object> outbound = new HashMap<>();
+        bytesOutByEncoding.forEach((encoding, bytes) -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("bytes", bytes.get());
+            item.put("frames", framesOutByEncoding.getOrDefault(encoding, new AtomicLong()).get());
+            outbound.put(encoding, item);
+        });
+
+        long original = compactOriginalBytes.get();
+        long sampled = sampledBytes.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", all.size());
+        stats.put("deflateSessions", deflateSessions);
+        stats.put("sessionsByEncoding", sessionsByEncoding);
+        stats.put("outboundByEncoding", outbound);
+        stats.put("compactOriginalBytes", original);
+        stats.put("compactEncodedBytes", compactEncodedBytes.get());
+        stats.put("compactRatio", original > 0 ? (double) compactEncodedBytes.get() / original : 1.0);
+        stats.put("deflateSampleRate", deflateSampleRate);
+        stats.put("estimatedDeflateRatio", sampled > 0 ? (double) sampledDeflatedBytes.get() / sampled : 1.0);
+        stats.put("topSessions", top);
+        return stats;
+    }
+
+    private void recordOutbound(SessionTraffic traffic, WebSocketMessage<?> message) {
+        int length = message.getPayloadLength();
+        traffic.framesOut.incrementAndGet();
+        traffic.bytesOut.addAndGet(length);
+        bytesOutByEncoding.computeIfAbsent(traffic.encoding, key -> new AtomicLong()).addAndGet(length);
+        framesOutByEncoding.computeIfAbsent(traffic.encoding, key -> new AtomicLong()).incrementAndGet();
+        if (deflateSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < deflateSampleRate) {
+            byte[] payload = payloadBytes(message);
+            if (payload != null) {
+                sampledBytes.addAndGet(payload.length);
+                sampledDeflatedBytes.addAndGet(deflatedSize(payload));
+            }
+        }
+    }
+
+    private static boolean isDeflateNegotiated(WebSocketSession session) {
+        try {
+            for (WebSocketExtension extension : session.getExtensions()) {
+                if (DEFLATE_EXTENSION.equals(extension.getName())) {
+                    return true;
+                }
+            }
+        } catch (UnsupportedOperationException e) {
+            // SockJS 的 HTTP 传输没有 WebSocket 扩展
+        }
+        return false;
+    }
+
+    private static byte[] payloadBytes(WebSocketMessage<?> message) {
+        Object payload = message.getPayload();
+        if (payload instanceof String) {
+            return ((String) payload).getBytes(StandardCharsets.UTF_8);
+        }
+        if (payload instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) payload).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        return null;
+    }
+
+    // 单帧无上下文压缩，结果偏保守；permessage-deflate 默认保留滑动窗口，实际压缩率通常更好
+    private static long deflatedSize(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            byte[] buffer = new byte[1024];
+            long size = 0;
+            while (!deflater.finished()) {
+                size += deflater.deflate(buffer);
+            }
+            return size;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static class SessionTraffic {
+        private final String sessionId;
+        private final boolean deflate;
+        private volatile String encoding = DEFAULT_ENCODING;
+        private final AtomicLong framesIn = new AtomicLong();
+        private final AtomicLong bytesIn = new AtomicLong();
+        private final AtomicLong framesOut = new AtomicLong();
+        private final AtomicLong bytesOut = new AtomicLong();
+
+        SessionTraffic(String sessionId, boolean deflate) {
+            this.sessionId = sessionId;
+            this.deflate = deflate;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("sessionId", sessionId);
+            map.put("deflate", deflate);
+            map.put("encoding", encoding);
+            map.put("framesIn", framesIn.get());
+            map.put("bytesIn", bytesIn.get());
+            map.put("framesOut", framesOut.get());
+            map.put("bytesOut", bytesOut.get());
+            return map;
+        }
+    }
+
+    private class MeteredSession extends WebSocketSessionDecorator {
+        private final SessionTraffic traffic;
+
+        MeteredSession(WebSocketSession session, SessionTraffic traffic) {
+            super(session);
+            this.traffic = traffic;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            recordOutbound(traffic, message);
+        }
+    }
+}